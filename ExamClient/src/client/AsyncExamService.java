@@ -0,0 +1,230 @@
+package client;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import shared.Exam;
+import shared.ExamCatalog;
+import shared.ExamPackage;
+import shared.ExamPayloadCodec;
+import shared.ExamResult;
+import shared.RemoteExamService;
+import shared.ServerBusyException;
+
+/**
+ * Runs RemoteExamService calls on a small bounded pool so the JavaFX thread
+ * never waits on the network. Every call returns a CompletableFuture that
+ * fails with a TimeoutException if the server does not answer in time;
+ * cancelling the future abandons the call and interrupts its worker. An
+ * RMI read ignores the interrupt, so over RMI the worker stays busy until
+ * the transport's response timeout, which ExamClient sets to the longest
+ * deadline here (RMI_RESPONSE_TIMEOUT_MILLIS).
+ * Calls the server turns away as busy are retried with jittered backoff
+ * until that same deadline. Use onFxThread() to handle the outcome back on
+ * the JavaFX thread.
+ */
+public class AsyncExamService {
+
+    private static final int THREADS = 4;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 15000;
+    private static final long SUBMIT_TIMEOUT_MILLIS = 30000;
+    static final long RMI_RESPONSE_TIMEOUT_MILLIS = Math.max(DEFAULT_TIMEOUT_MILLIS, SUBMIT_TIMEOUT_MILLIS);
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    // A single round trip against the wrapped service
+    public interface RemoteCall<T> {
+        T call(RemoteExamService service) throws Exception;
+    }
+
+    private final RemoteExamService service;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService timeouts;
+
+    public AsyncExamService(RemoteExamService service) {
+        this.service = service;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread thread = new Thread(r, "exam-service-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "exam-service-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> CompletableFuture<T> call(RemoteCall<T> remoteCall) {
+        return call(remoteCall, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public <T> CompletableFuture<T> call(RemoteCall<T> remoteCall, long timeoutMillis) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    result.complete(callWithRetry(remoteCall, result));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Too many calls already queued; fail fast rather than pile up behind a slow server
+            result.completeExceptionally(new RejectedExecutionException("Too many requests in progress", e));
+            return result;
+        }
+
+        ScheduledFuture<?> timeout = timeouts.schedule(() -> {
+            result.completeExceptionally(new TimeoutException(
+                    "The server did not respond within " + timeoutMillis / 1000 + " seconds"));
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+        result.whenComplete((value, error) -> {
+            timeout.cancel(false);
+            // Timed out or cancelled by the caller: don't leave the call occupying the pool
+            if (!task.isDone()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    // Busy rejections happen before the server does any work, so every call is safe to retry
+    private <T> T callWithRetry(RemoteCall<T> remoteCall, CompletableFuture<T> result) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return remoteCall.call(service);
+            } catch (Exception e) {
+                ServerBusyException busy = findBusy(e);
+                if (busy == null || result.isDone()) {
+                    throw e;
+                }
+
+                // Exponential backoff from the server's hint, randomised so rejected clients spread out
+                long base = Math.min(MAX_BACKOFF_MILLIS, busy.getRetryAfterMillis() << Math.min(attempt, 6));
+                long delay = base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    // RMI wraps exceptions thrown by the server in a ServerException
+    private static ServerBusyException findBusy(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof ServerBusyException) {
+                return (ServerBusyException) t;
+            }
+        }
+        return null;
+    }
+
+    public CompletableFuture<Boolean> authenticateUser(String username, String password) {
+        return call(s -> s.authenticateUser(username, password, false));
+    }
+
+    public CompletableFuture<ExamCatalog> getAvailableExams(String studentId, long knownVersion) {
+        return call(s -> s.getAvailableExams(studentId, knownVersion));
+    }
+
+    // Fetches and decodes the shared exam payload, both off the FX thread
+    public CompletableFuture<Exam> startExam(int examId, String studentId) {
+        return call(s -> ExamPayloadCodec.decode(s.getExamPayload(examId, studentId)));
+    }
+
+    public CompletableFuture<byte[]> prefetchExam(int examId, String studentId) {
+        return call(s -> s.getExamPackage(examId, studentId));
+    }
+
+    // Starts an exam whose encrypted package was prefetched: only the key is fetched, unless
+    // the exam was edited since or the package is unreadable, in which case the full payload is
+    public CompletableFuture<Exam> startPrefetchedExam(int examId, String studentId, byte[] examPackage) {
+        return call(s -> {
+            byte[] key = s.releaseExamKey(examId, studentId, ExamPackage.getExamVersion(examPackage));
+            if (key != null) {
+                try {
+                    return ExamPackage.open(examPackage, key);
+                } catch (IOException e) {
+                    // Unreadable package; the full payload below is the intended fallback
+                }
+            }
+            return ExamPayloadCodec.decode(s.getExamPayload(examId, studentId));
+        });
+    }
+
+    public CompletableFuture<Boolean> submitExam(int examId, String studentId, int examVersion, int[] selectedOptions) {
+        return call(s -> s.submitExamPacked(examId, studentId, examVersion, selectedOptions), SUBMIT_TIMEOUT_MILLIS);
+    }
+
+    public CompletableFuture<Void> saveProgress(int examId, String studentId, int examVersion,
+            int[] questionIndexes, int[] selectedOptions) {
+        return call(s -> {
+            s.saveProgress(examId, studentId, examVersion, questionIndexes, selectedOptions);
+            return null;
+        });
+    }
+
+    public CompletableFuture<int[]> getSavedProgress(int examId, String studentId, int examVersion) {
+        return call(s -> s.getSavedProgress(examId, studentId, examVersion));
+    }
+
+    public CompletableFuture<Boolean> heartbeat(int examId, String studentId) {
+        return call(s -> s.heartbeat(examId, studentId));
+    }
+
+    public CompletableFuture<Long> getTimeRemaining(int examId, String studentId) {
+        return call(s -> s.getTimeRemaining(examId, studentId));
+    }
+
+    public CompletableFuture<ExamResult> getExamResult(int examId, String studentId) {
+        return call(s -> s.getExamResult(examId, studentId));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        timeouts.shutdownNow();
+    }
+
+    // Delivers the outcome on the JavaFX thread, with wrapper exceptions unwrapped; cancelled calls are dropped
+    public static <T> void onFxThread(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        future.whenComplete((value, error) -> Platform.runLater(() -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            if (error == null) {
+                onSuccess.accept(value);
+            } else {
+                onFailure.accept(unwrap(error));
+            }
+        }));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -1,7 +1,5 @@
 package client;
 
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -14,22 +12,42 @@ public class ExamClient extends Application {
     private static final String SERVER_HOST = "localhost";
     private static final int RMI_PORT = 1099;
     private static final String SERVICE_NAME = "ExamService";
+    // "rmi" (default) or "nio"
+    private static final String TRANSPORT = System.getProperty("exam.transport", "rmi");
+    private static final int NIO_PORT = Integer.getInteger("exam.nioPort", 1100);
+    
+    private AsyncExamService asyncService;
     
     @Override
     public void start(Stage primaryStage) throws Exception {
-        // Connect to the RMI service
-        Registry registry = LocateRegistry.getRegistry(SERVER_HOST, RMI_PORT);
-        RemoteExamService examService = (RemoteExamService) registry.lookup(SERVICE_NAME);
+        // A blocked RMI read ignores interrupts; bound it so a timed-out call frees its worker.
+        // Read once when RMI first connects, so it has to be set before the lookup.
+        if (System.getProperty("sun.rmi.transport.tcp.responseTimeout") == null) {
+            System.setProperty("sun.rmi.transport.tcp.responseTimeout",
+                    String.valueOf(AsyncExamService.RMI_RESPONSE_TIMEOUT_MILLIS));
+        }
+        
+        // Connect to the exam service over the configured transport
+        RemoteExamService examService;
+        if ("nio".equals(TRANSPORT)) {
+            examService = NioExamServiceClient.connect(SERVER_HOST, NIO_PORT);
+        } else {
+            // Looks the service up again if the server restarts, so an exam in progress carries on
+            examService = RmiExamServiceClient.connect(SERVER_HOST, RMI_PORT, SERVICE_NAME);
+        }
         
         System.out.println("Connected to exam server.");
         
+        // Controllers make their remote calls through this so the UI never blocks on the network
+        asyncService = new AsyncExamService(examService);
+        
         // Load the login screen
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/client/fxml/Login.fxml"));
         Parent root = loader.load();
         
         // Get the controller and set the exam service
         LoginController controller = loader.getController();
-        controller.setExamService(examService);
+        controller.setExamService(asyncService);
         
         // Set up and show the JavaFX stage
         primaryStage.setTitle("Online Exam System - Student Client");
@@ -37,6 +55,13 @@ public class ExamClient extends Application {
         primaryStage.show();
     }
     
+    @Override
+    public void stop() {
+        if (asyncService != null) {
+            asyncService.shutdown();
+        }
+    }
+    
     public static void main(String[] args) {
         launch(args);
     }
@@ -0,0 +1,114 @@
+package client;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import shared.Exam;
+
+/**
+ * Downloads the encrypted package of each upcoming exam during the window
+ * before its start time, at a random point in that window so students'
+ * clients do not all fetch at once. Starting a prefetched exam then only
+ * needs the small key from the server.
+ */
+public class ExamPrefetcher {
+
+    private static final long PREFETCH_WINDOW_MILLIS =
+            Long.getLong("exam.prefetchWindowMinutes", 30) * 60 * 1000;
+    // Downloads are finished this long before the start, leaving time to retry
+    private static final long SAFETY_MARGIN_MILLIS = 2 * 60 * 1000;
+    private static final long RETRY_DELAY_MILLIS = 60 * 1000;
+
+    private final AsyncExamService examService;
+    private final String studentId;
+    private final ScheduledExecutorService scheduler;
+
+    // exam id -> exam version the download was scheduled for, the pending download, the package
+    private final Map<Integer, Integer> scheduledVersions = new ConcurrentHashMap<>();
+    private final Map<Integer, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+    private final Map<Integer, byte[]> packages = new ConcurrentHashMap<>();
+
+    public ExamPrefetcher(AsyncExamService examService, String studentId) {
+        this.examService = examService;
+        this.studentId = studentId;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "exam-prefetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Plans downloads for the current exam list, replacing plans for exams that were edited or removed
+    public void schedule(List<Exam> exams) {
+        long now = System.currentTimeMillis();
+        Set<Integer> listed = new HashSet<>();
+
+        for (Exam exam : exams) {
+            listed.add(exam.getId());
+            if (exam.getStartTime() == null || exam.getStartTime().getTime() <= now) {
+                continue; // already open: nothing to gain from prefetching
+            }
+
+            Integer plannedVersion = scheduledVersions.get(exam.getId());
+            if (plannedVersion != null && plannedVersion == exam.getVersion()) {
+                continue;
+            }
+
+            forget(exam.getId());
+            scheduledVersions.put(exam.getId(), exam.getVersion());
+
+            long start = exam.getStartTime().getTime();
+            long earliest = Math.max(now, start - PREFETCH_WINDOW_MILLIS);
+            long latest = Math.max(earliest, start - SAFETY_MARGIN_MILLIS);
+            long at = earliest + ThreadLocalRandom.current().nextLong(latest - earliest + 1);
+            scheduleDownload(exam.getId(), start, at - now);
+        }
+
+        for (Integer examId : scheduledVersions.keySet()) {
+            if (!listed.contains(examId)) {
+                forget(examId);
+            }
+        }
+    }
+
+    private void scheduleDownload(int examId, long startTime, long delayMillis) {
+        pending.put(examId, scheduler.schedule(() -> download(examId, startTime), delayMillis, TimeUnit.MILLISECONDS));
+    }
+
+    private void download(int examId, long startTime) {
+        examService.prefetchExam(examId, studentId).whenComplete((examPackage, error) -> {
+            if (error == null) {
+                packages.put(examId, examPackage);
+                pending.remove(examId);
+            } else if (System.currentTimeMillis() + RETRY_DELAY_MILLIS < startTime && !scheduler.isShutdown()) {
+                long jitter = ThreadLocalRandom.current().nextLong(RETRY_DELAY_MILLIS);
+                scheduleDownload(examId, startTime, RETRY_DELAY_MILLIS / 2 + jitter);
+            }
+        });
+    }
+
+    // The downloaded package for this exam, or null if there is none yet
+    public byte[] getPackage(int examId) {
+        return packages.get(examId);
+    }
+
+    public void forget(int examId) {
+        ScheduledFuture<?> download = pending.remove(examId);
+        if (download != null) {
+            download.cancel(false);
+        }
+        scheduledVersions.remove(examId);
+        packages.remove(examId);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
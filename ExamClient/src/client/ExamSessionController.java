@@ -1,9 +1,14 @@
 package client;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -11,10 +16,8 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-import shared.Answer;
 import shared.Exam;
 import shared.Question;
-import shared.RemoteExamService;
 
 public class ExamSessionController {
 
@@ -24,16 +27,39 @@ public class ExamSessionController {
     private Label timerLabel;
     @FXML
     private VBox questionsContainer;
+    @FXML
+    private Button submitButton;
+    @FXML
+    private ProgressIndicator busyProgress;
 
-    private RemoteExamService examService;
+    private AsyncExamService examService;
     private String studentId;
     private Exam exam;
     private Timeline timer;
     private int secondsRemaining;
 
+    // The countdown runs on System.nanoTime() towards a deadline taken from the server's remaining time,
+    // so neither the local wall clock nor a resumed window's fresh start can skew it
+    private static final int TIME_SYNC_SECONDS = 60;
+    private long deadlineNanos;
+    private int ticksSinceSync;
+    private boolean timeSyncInFlight = false;
+    private boolean timeUp = false;
+
     private List<ToggleGroup> answerGroups = new ArrayList<>();
 
-    public void setExamService(RemoteExamService examService) {
+    // Answers changed since the last checkpoint, one entry per question however often it changes.
+    // They are sent once the student pauses, or after MAX_CHECKPOINT_DELAY_MILLIS of steady clicking.
+    private static final double CHECKPOINT_DELAY_SECONDS = 2;
+    private static final long MAX_CHECKPOINT_DELAY_MILLIS = 10000;
+    private final Map<Integer, Integer> pendingAnswers = new LinkedHashMap<>();
+    private final PauseTransition checkpointDelay = new PauseTransition(Duration.seconds(CHECKPOINT_DELAY_SECONDS));
+    private long pendingSince;
+    private boolean checkpointInFlight = false;
+    private boolean restoring = false;
+    private boolean submitted = false;
+
+    public void setExamService(AsyncExamService examService) {
         this.examService = examService;
     }
 
@@ -45,19 +71,32 @@ public class ExamSessionController {
         this.exam = exam;
         examTitleLabel.setText(exam.getTitle());
 
-        // Set up the timer
-        secondsRemaining = exam.getDurationMinutes() * 60;
+        // Set up the timer; the full duration until the server says how much is left
+        deadlineNanos = System.nanoTime() + TimeUnit.MINUTES.toNanos(exam.getDurationMinutes());
         updateTimerLabel();
     }
 
+    public int getExamId() {
+        return exam.getId();
+    }
+
+    public boolean isSubmitted() {
+        return submitted;
+    }
+
     public void startExam() {
         // Create the question UI
         createQuestionUI();
+        restoreProgress();
+        checkpointDelay.setOnFinished(e -> sendCheckpoint());
+        syncTime();
 
         // Start the timer
         timer = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
-            secondsRemaining--;
             updateTimerLabel();
+            if (++ticksSinceSync >= TIME_SYNC_SECONDS) {
+                syncTime();
+            }
 
             if (secondsRemaining <= 0) {
                 timer.stop();
@@ -68,6 +107,29 @@ public class ExamSessionController {
         timer.play();
     }
 
+    // The server's remaining time, taken as measured halfway through the round trip
+    private void syncTime() {
+        if (timeSyncInFlight || submitted) {
+            return;
+        }
+        timeSyncInFlight = true;
+        ticksSinceSync = 0;
+
+        long sentAt = System.nanoTime();
+        AsyncExamService.onFxThread(examService.getTimeRemaining(exam.getId(), studentId), remaining -> {
+            timeSyncInFlight = false;
+            // -1 means the session has ended; the heartbeat reports that to the dashboard
+            if (remaining >= 0 && !submitted) {
+                long receivedAt = System.nanoTime();
+                deadlineNanos = sentAt + (receivedAt - sentAt) / 2 + TimeUnit.MILLISECONDS.toNanos(remaining);
+                updateTimerLabel();
+            }
+        }, e -> {
+            // Keep counting down from the last known deadline and try again next interval
+            timeSyncInFlight = false;
+        });
+    }
+
     private void createQuestionUI() {
         questionsContainer.getChildren().clear();
         answerGroups.clear();
@@ -88,6 +150,10 @@ public class ExamSessionController {
             ToggleGroup group = new ToggleGroup();
             answerGroups.add(group);
 
+            int questionIndex = questionNumber - 1;
+            group.selectedToggleProperty().addListener(
+                    (observable, oldToggle, newToggle) -> answerChanged(questionIndex, newToggle));
+
             // Add the options
             List<String> options = question.getOptions();
             for (int i = 0; i < options.size(); i++) {
@@ -104,7 +170,136 @@ public class ExamSessionController {
         }
     }
 
+    // Re-selects the answers checkpointed before the exam window was last closed.
+    // The questions stay disabled until the server has answered.
+    private void restoreProgress() {
+        questionsContainer.setDisable(true);
+        busyProgress.setVisible(true);
+
+        AsyncExamService.onFxThread(examService.getSavedProgress(exam.getId(), studentId, exam.getVersion()), saved -> {
+            if (saved != null) {
+                restoring = true;
+                for (int i = 0; i < saved.length && i < answerGroups.size(); i++) {
+                    for (Toggle toggle : answerGroups.get(i).getToggles()) {
+                        if ((int) toggle.getUserData() == saved[i]) {
+                            toggle.setSelected(true);
+                        }
+                    }
+                }
+                restoring = false;
+            }
+            questionsContainer.setDisable(false);
+            busyProgress.setVisible(false);
+        }, e -> {
+            // Not fatal: the student simply starts from blank answers
+            questionsContainer.setDisable(false);
+            busyProgress.setVisible(false);
+        });
+    }
+
+    private void answerChanged(int questionIndex, Toggle selectedToggle) {
+        if (restoring || submitted) {
+            return;
+        }
+
+        if (pendingAnswers.isEmpty()) {
+            pendingSince = System.currentTimeMillis();
+        }
+        pendingAnswers.put(questionIndex, selectedToggle != null ? (int) selectedToggle.getUserData() : -1);
+
+        if (System.currentTimeMillis() - pendingSince >= MAX_CHECKPOINT_DELAY_MILLIS) {
+            sendCheckpoint();
+        } else {
+            checkpointDelay.playFromStart();
+        }
+    }
+
+    private void sendCheckpoint() {
+        if (checkpointInFlight || pendingAnswers.isEmpty() || submitted) {
+            return;
+        }
+        checkpointDelay.stop();
+
+        Map<Integer, Integer> sending = new LinkedHashMap<>(pendingAnswers);
+        pendingAnswers.clear();
+        checkpointInFlight = true;
+
+        AsyncExamService.onFxThread(saveAnswers(sending),
+                ignored -> checkpointFinished(sending, true),
+                e -> checkpointFinished(sending, false));
+    }
+
+    private void checkpointFinished(Map<Integer, Integer> sent, boolean saved) {
+        checkpointInFlight = false;
+        if (submitted) {
+            return;
+        }
+
+        if (!saved) {
+            // Keep anything the student changed meanwhile and retry the rest with it
+            for (Map.Entry<Integer, Integer> entry : sent.entrySet()) {
+                pendingAnswers.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!pendingAnswers.isEmpty()) {
+            checkpointDelay.playFromStart();
+        }
+    }
+
+    private CompletableFuture<Void> saveAnswers(Map<Integer, Integer> answers) {
+        int[] questionIndexes = new int[answers.size()];
+        int[] selectedOptions = new int[answers.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : answers.entrySet()) {
+            questionIndexes[i] = entry.getKey();
+            selectedOptions[i] = entry.getValue();
+            i++;
+        }
+
+        return examService.saveProgress(exam.getId(), studentId, exam.getVersion(), questionIndexes, selectedOptions);
+    }
+
+    // Called when the student closes the exam window: stop the clock and save what is pending
+    public void stopExam() {
+        if (timer != null) {
+            timer.stop();
+        }
+        checkpointDelay.stop();
+
+        if (!submitted && !pendingAnswers.isEmpty()) {
+            // The window is already gone, so this is the only place a failed final save can be reported
+            AsyncExamService.onFxThread(saveAnswers(new LinkedHashMap<>(pendingAnswers)), ignored -> { },
+                    e -> showAlert(Alert.AlertType.WARNING, "Warning", "Recent Answers Not Saved",
+                            "Your last answers could not be saved (" + e.getMessage()
+                            + "). Check them again when you reopen the exam."));
+            pendingAnswers.clear();
+        }
+    }
+
+    // The server ended the session (lease expired or time ran out); nothing typed from now on could be saved
+    public void sessionEnded() {
+        if (submitted || submitButton.isDisabled()) {
+            return; // our own submission got there first
+        }
+        submitted = true;
+        if (timer != null) {
+            timer.stop();
+        }
+        checkpointDelay.stop();
+        questionsContainer.setDisable(true);
+        submitButton.setDisable(true);
+
+        showAlert(Alert.AlertType.WARNING, "Session Ended", "Exam Session Ended",
+                "The server closed this exam session, either because the time ran out or because it "
+                + "stopped hearing from this computer. Any answers saved before that were kept.");
+        Stage stage = (Stage) examTitleLabel.getScene().getWindow();
+        stage.close();
+    }
+
     private void updateTimerLabel() {
+        long nanosLeft = Math.max(0, deadlineNanos - System.nanoTime());
+        secondsRemaining = (int) ((nanosLeft + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+
         int hours = secondsRemaining / 3600;
         int minutes = (secondsRemaining % 3600) / 60;
         int seconds = secondsRemaining % 60;
@@ -117,13 +312,10 @@ public class ExamSessionController {
         }
     }
 
+    // Called from the timer's handler, where showAndWait is not allowed; the submission's own
+    // dialog tells the student, and submitting at once keeps well inside the server's grace
     private void handleTimeUp() {
-        Alert alert = new Alert(Alert.AlertType.WARNING);
-        alert.setTitle("Time's Up");
-        alert.setHeaderText("Exam Time Expired");
-        alert.setContentText("Your time is up. The exam will be submitted automatically.");
-        alert.showAndWait();
-
+        timeUp = true;
         submitExam();
     }
 
@@ -140,50 +332,59 @@ public class ExamSessionController {
     }
 
     private void submitExam() {
-        try {
-            // Stop the timer
-            if (timer != null) {
-                timer.stop();
-            }
+        if (submitButton.isDisabled()) {
+            return; // already submitting
+        }
 
-            // Collect the answers
-            List<Answer> answers = new ArrayList<>();
-            List<Question> questions = exam.getQuestions();
+        // Stop the timer
+        if (timer != null) {
+            timer.stop();
+        }
+        checkpointDelay.stop();
 
-            for (int i = 0; i < questions.size(); i++) {
-                Question question = questions.get(i);
-                ToggleGroup group = answerGroups.get(i);
-                Toggle selectedToggle = group.getSelectedToggle();
+        // Collect the answers as option indexes in question order
+        int[] selectedOptions = new int[answerGroups.size()];
 
-                int selectedOption = -1; // -1 means no answer
-                if (selectedToggle != null) {
-                    selectedOption = (int) selectedToggle.getUserData();
-                }
+        for (int i = 0; i < answerGroups.size(); i++) {
+            Toggle selectedToggle = answerGroups.get(i).getSelectedToggle();
 
-                answers.add(new Answer(question.getId(), selectedOption));
+            selectedOptions[i] = -1; // -1 means no answer
+            if (selectedToggle != null) {
+                selectedOptions[i] = (int) selectedToggle.getUserData();
             }
+        }
 
-            // Submit the exam
-            boolean success = examService.submitExam(exam.getId(), studentId, answers);
+        // Submit the exam
+        submitButton.setDisable(true);
+        busyProgress.setVisible(true);
+        AsyncExamService.onFxThread(examService.submitExam(exam.getId(), studentId, exam.getVersion(), selectedOptions), success -> {
+            busyProgress.setVisible(false);
 
             if (success) {
+                submitted = true;
+                pendingAnswers.clear();
+
                 Alert alert = new Alert(Alert.AlertType.INFORMATION);
                 alert.setTitle("Exam Submitted");
-                alert.setHeaderText("Exam Successfully Submitted");
-                alert.setContentText("Your exam has been submitted successfully. You can view your results when the teacher makes them available.");
+                alert.setHeaderText(timeUp ? "Exam Time Expired" : "Exam Successfully Submitted");
+                alert.setContentText((timeUp ? "Your time is up and your answers have been submitted automatically. "
+                        : "Your exam has been submitted successfully. ")
+                        + "You can view your results when the teacher makes them available.");
                 alert.showAndWait();
 
                 // Close the exam window
                 Stage stage = (Stage) examTitleLabel.getScene().getWindow();
                 stage.close();
             } else {
+                submitButton.setDisable(false);
                 showAlert(Alert.AlertType.ERROR, "Error", "Submission Failed",
                         "There was an error submitting your exam. Please try again.");
             }
-        } catch (Exception e) {
+        }, e -> {
+            busyProgress.setVisible(false);
+            submitButton.setDisable(false);
             showAlert(Alert.AlertType.ERROR, "Error", "Submission Failed", e.getMessage());
-            e.printStackTrace();
-        }
+        });
     }
 
     private void showAlert(Alert.AlertType type, String title, String header, String content) {
@@ -6,21 +6,24 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
-import shared.RemoteExamService;
 
 public class LoginController {
     
     @FXML private TextField usernameField;
     @FXML private PasswordField passwordField;
     @FXML private Label statusLabel;
+    @FXML private Button loginButton;
+    @FXML private ProgressIndicator loginProgress;
     
-    private RemoteExamService examService;
+    private AsyncExamService examService;
     
-    public void setExamService(RemoteExamService examService) {
+    public void setExamService(AsyncExamService examService) {
         this.examService = examService;
     }
     
@@ -34,30 +37,46 @@ public class LoginController {
             return;
         }
         
-        try {
-            boolean authenticated = examService.authenticateUser(username, password, false);
-            
+        setBusy(true);
+        statusLabel.setText("");
+        AsyncExamService.onFxThread(examService.authenticateUser(username, password), authenticated -> {
+            setBusy(false);
             if (authenticated) {
-                // Load the student dashboard
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("/client/fxml/StudentDashboard.fxml"));
-                Parent root = loader.load();
-                
-                StudentDashboardController controller = loader.getController();
-                controller.setExamService(examService);
-                controller.setStudentId(username);
-                controller.initialize();
-                
-                // Get the current stage and set the new scene
-                Stage stage = (Stage) usernameField.getScene().getWindow();
-                stage.setTitle("Student Dashboard - " + username);
-                stage.setScene(new Scene(root, 800, 600));
-                stage.centerOnScreen();
+                showDashboard(username);
             } else {
                 statusLabel.setText("Invalid username or password");
             }
-        } catch (Exception e) {
+        }, e -> {
+            setBusy(false);
+            statusLabel.setText("Error: " + e.getMessage());
+            e.printStackTrace();
+        });
+    }
+    
+    private void showDashboard(String username) {
+        try {
+            // Load the student dashboard
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/client/fxml/StudentDashboard.fxml"));
+            Parent root = loader.load();
+            
+            StudentDashboardController controller = loader.getController();
+            controller.setExamService(examService);
+            controller.setStudentId(username);
+            controller.initialize();
+            
+            // Get the current stage and set the new scene
+            Stage stage = (Stage) usernameField.getScene().getWindow();
+            stage.setTitle("Student Dashboard - " + username);
+            stage.setScene(new Scene(root, 800, 600));
+            stage.centerOnScreen();
+        } catch (IOException e) {
             statusLabel.setText("Error: " + e.getMessage());
             e.printStackTrace();
         }
     }
+    
+    private void setBusy(boolean busy) {
+        loginButton.setDisable(busy);
+        loginProgress.setVisible(busy);
+    }
 }
\ No newline at end of file
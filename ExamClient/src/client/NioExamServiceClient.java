@@ -0,0 +1,170 @@
+package client;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import shared.NioProtocol;
+import shared.RemoteExamService;
+
+/**
+ * RemoteExamService over the server's NIO transport. All calls share one
+ * socket and are matched to their responses by call id, so the few
+ * AsyncExamService workers can have calls in flight at the same time.
+ * A dropped connection fails the calls in flight and is reopened by the
+ * next call.
+ */
+public class NioExamServiceClient implements InvocationHandler {
+
+    // Backstop only; AsyncExamService applies the real per-call timeouts
+    private static final long CALL_TIMEOUT_MILLIS = 60000;
+    // Lets large requests and responses travel deflated; -Dexam.compression=false turns it off
+    private static final boolean COMPRESSION = Boolean.parseBoolean(System.getProperty("exam.compression", "true"));
+
+    private final String host;
+    private final int port;
+    private final AtomicLong nextCallId = new AtomicLong();
+    private final Map<Long, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    private SocketChannel channel;
+
+    private NioExamServiceClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public static RemoteExamService connect(String host, int port) throws IOException {
+        NioExamServiceClient client = new NioExamServiceClient(host, port);
+        client.connection();
+        return (RemoteExamService) Proxy.newProxyInstance(
+                RemoteExamService.class.getClassLoader(),
+                new Class<?>[]{RemoteExamService.class},
+                client);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "NioExamServiceClient[" + host + ":" + port + "]";
+            }
+        }
+
+        long callId = nextCallId.incrementAndGet();
+        CompletableFuture<Object> response = new CompletableFuture<>();
+        pending.put(callId, response);
+        try {
+            ByteBuffer request = NioProtocol.encodeRequest(callId, NioProtocol.indexOf(method), args, COMPRESSION);
+            synchronized (writeLock) {
+                SocketChannel current = connection();
+                try {
+                    while (request.hasRemaining()) {
+                        current.write(request);
+                    }
+                } catch (IOException e) {
+                    connectionLost(current, e);
+                    throw e;
+                }
+            }
+            return response.get(CALL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (IOException e) {
+            throw new RemoteException("Could not reach the exam server", e);
+        } catch (TimeoutException e) {
+            throw new RemoteException("The exam server did not answer within " + CALL_TIMEOUT_MILLIS + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Call interrupted", e);
+        } finally {
+            pending.remove(callId);
+        }
+    }
+
+    // Opens the socket and its reader thread if there is no live connection
+    private synchronized SocketChannel connection() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            SocketChannel opened = SocketChannel.open(new InetSocketAddress(host, port));
+            opened.socket().setTcpNoDelay(true);
+            channel = opened;
+
+            Thread reader = new Thread(() -> readResponses(opened), "nio-exam-client-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+        return channel;
+    }
+
+    private void readResponses(SocketChannel source) {
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        try {
+            while (true) {
+                lengthBuffer.clear();
+                readFully(source, lengthBuffer);
+                int length = lengthBuffer.getInt(0);
+                if (length < NioProtocol.RESPONSE_HEADER_LENGTH || length > NioProtocol.MAX_FRAME_BYTES) {
+                    throw new IOException("Bad frame length " + length);
+                }
+
+                ByteBuffer frame = ByteBuffer.allocate(length);
+                readFully(source, frame);
+                CompletableFuture<Object> response = pending.remove(frame.getLong(0));
+                if (response == null) {
+                    continue; // the caller already gave up
+                }
+
+                try {
+                    Object value = NioProtocol.readBody(frame, NioProtocol.RESPONSE_HEADER_LENGTH);
+                    if (frame.get(8) == NioProtocol.STATUS_OK) {
+                        response.complete(value);
+                    } else {
+                        response.completeExceptionally((Throwable) value);
+                    }
+                } catch (IOException | ClassCastException e) {
+                    response.completeExceptionally(new RemoteException("Unreadable response", e));
+                }
+            }
+        } catch (IOException e) {
+            connectionLost(source, e);
+        }
+    }
+
+    private static void readFully(SocketChannel source, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer) < 0) {
+                throw new IOException("Connection closed by the exam server");
+            }
+        }
+    }
+
+    private void connectionLost(SocketChannel lost, IOException cause) {
+        try {
+            lost.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+
+        // Calls that were written on the lost socket will never be answered
+        RemoteException failure = new RemoteException("Lost connection to the exam server", cause);
+        for (CompletableFuture<Object> response : pending.values()) {
+            response.completeExceptionally(failure);
+        }
+    }
+}
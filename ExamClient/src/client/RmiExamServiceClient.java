@@ -0,0 +1,84 @@
+package client;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.ConnectException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import shared.RemoteExamService;
+
+/**
+ * RemoteExamService over RMI that survives a server restart. A restarted
+ * server exports the service under a new object id, so the old stub fails
+ * with NoSuchObjectException, or with ConnectException while it is down;
+ * either way the call never reached the service, so the stub is looked up
+ * again and the call retried once.
+ */
+public class RmiExamServiceClient implements InvocationHandler {
+
+    private final String host;
+    private final int port;
+    private final String serviceName;
+
+    private volatile RemoteExamService stub;
+
+    private RmiExamServiceClient(String host, int port, String serviceName) {
+        this.host = host;
+        this.port = port;
+        this.serviceName = serviceName;
+    }
+
+    public static RemoteExamService connect(String host, int port, String serviceName)
+            throws RemoteException, NotBoundException {
+        RmiExamServiceClient client = new RmiExamServiceClient(host, port, serviceName);
+        client.stub = client.lookup();
+        return (RemoteExamService) Proxy.newProxyInstance(
+                RemoteExamService.class.getClassLoader(),
+                new Class<?>[]{RemoteExamService.class},
+                client);
+    }
+
+    private RemoteExamService lookup() throws RemoteException, NotBoundException {
+        return (RemoteExamService) LocateRegistry.getRegistry(host, port).lookup(serviceName);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "RmiExamServiceClient[" + host + ":" + port + "/" + serviceName + "]";
+            }
+        }
+
+        RemoteExamService current = stub;
+        try {
+            return call(current, method, args);
+        } catch (NoSuchObjectException | ConnectException e) {
+            RemoteExamService renewed;
+            try {
+                renewed = lookup();
+            } catch (NotBoundException notBound) {
+                throw new ConnectException("Exam service is not available", notBound);
+            }
+            stub = renewed;
+            return call(renewed, method, args);
+        }
+    }
+
+    private static Object call(RemoteExamService target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
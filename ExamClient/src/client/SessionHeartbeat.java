@@ -0,0 +1,71 @@
+package client;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps the server-side lease of each unfinished exam alive while this
+ * client runs, including while the exam window is closed for a later
+ * resume. If the client goes away the leases lapse and the server applies
+ * its expiry policy. onSessionEnded is told when the server reports that a
+ * session no longer exists.
+ */
+public class SessionHeartbeat {
+
+    // Well inside the server's default 120 s lease, so one lost heartbeat does no harm
+    private static final long INTERVAL_MILLIS = 30 * 1000;
+
+    private final AsyncExamService examService;
+    private final String studentId;
+    private final IntConsumer onSessionEnded;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Integer, ScheduledFuture<?>> tracked = new ConcurrentHashMap<>();
+
+    public SessionHeartbeat(AsyncExamService examService, String studentId, IntConsumer onSessionEnded) {
+        this.examService = examService;
+        this.studentId = studentId;
+        this.onSessionEnded = onSessionEnded;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void track(int examId) {
+        if (tracked.containsKey(examId)) {
+            return;
+        }
+        // Spread students who started together across the interval
+        long firstDelay = ThreadLocalRandom.current().nextLong(INTERVAL_MILLIS);
+        tracked.put(examId, scheduler.scheduleAtFixedRate(() -> beat(examId),
+                firstDelay, INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    public void untrack(int examId) {
+        ScheduledFuture<?> beats = tracked.remove(examId);
+        if (beats != null) {
+            beats.cancel(false);
+        }
+    }
+
+    private void beat(int examId) {
+        examService.heartbeat(examId, studentId).whenComplete((alive, error) -> {
+            // Errors are retried on the next beat; only a definite "gone" ends tracking
+            if (error == null && !alive && tracked.containsKey(examId)) {
+                untrack(examId);
+                onSessionEnded.accept(examId);
+            }
+        });
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,8 +1,9 @@
 package client;
 
 import java.net.URL;
-import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -13,10 +14,10 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.Modality;
 import javafx.stage.Stage;
 import shared.Exam;
 import shared.ExamResult;
-import shared.RemoteExamService;
 
 public class StudentDashboardController implements Initializable {
     
@@ -36,9 +37,20 @@ public class StudentDashboardController implements Initializable {
     @FXML private TableColumn<ExamResult, Double> resultPercentageColumn;
     @FXML private TableColumn<ExamResult, String> resultSubmissionTimeColumn;
     
-    private RemoteExamService examService;
+    @FXML private Button startExamButton;
+    @FXML private ProgressIndicator examsProgress;
+    
+    private AsyncExamService examService;
     private String studentId;
     
+    // Last catalog received; refreshing sends its version and the server only replies with changes
+    private long catalogVersion = -1;
+    private ExamPrefetcher prefetcher;
+    // Keeps unfinished exams leased on the server; openExam is the exam window currently shown
+    private SessionHeartbeat heartbeat;
+    private ExamSessionController openExam;
+    private final ObservableList<Exam> availableExams = FXCollections.observableArrayList();
+    
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         // Initialize table columns
@@ -53,15 +65,20 @@ public class StudentDashboardController implements Initializable {
         resultTotalColumn.setCellValueFactory(new PropertyValueFactory<>("totalPossible"));
         resultPercentageColumn.setCellValueFactory(new PropertyValueFactory<>("percentage"));
         resultSubmissionTimeColumn.setCellValueFactory(new PropertyValueFactory<>("submissionTime"));
+        
+        availableExamsTable.setItems(availableExams);
     }
     
     public void initialize() {
         studentInfoLabel.setText("Student: " + studentId);
+        prefetcher = new ExamPrefetcher(examService, studentId);
+        heartbeat = new SessionHeartbeat(examService, studentId,
+                examId -> Platform.runLater(() -> sessionEnded(examId)));
         refreshExams();
         refreshResults();
     }
     
-    public void setExamService(RemoteExamService examService) {
+    public void setExamService(AsyncExamService examService) {
         this.examService = examService;
     }
     
@@ -71,6 +88,8 @@ public class StudentDashboardController implements Initializable {
     
     @FXML
     private void handleLogout(ActionEvent event) {
+        prefetcher.shutdown();
+        heartbeat.shutdown();
         try {
             // Load the login screen
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/client/fxml/Login.fxml"));
@@ -105,10 +124,30 @@ public class StudentDashboardController implements Initializable {
             return;
         }
         
+        startExamButton.setDisable(true);
+        examsProgress.setVisible(true);
+        
+        // If the encrypted package was downloaded ahead of time only the key has to come now;
+        // otherwise get the exam as a pre-encoded payload shared with other students
+        byte[] prefetched = prefetcher.getPackage(selectedExam.getId());
+        CompletableFuture<Exam> start = prefetched != null
+                ? examService.startPrefetchedExam(selectedExam.getId(), studentId, prefetched)
+                : examService.startExam(selectedExam.getId(), studentId);
+        AsyncExamService.onFxThread(start, examWithQuestions -> {
+            prefetcher.forget(selectedExam.getId());
+            heartbeat.track(selectedExam.getId());
+            startExamButton.setDisable(false);
+            examsProgress.setVisible(false);
+            openExamWindow(examWithQuestions);
+        }, e -> {
+            startExamButton.setDisable(false);
+            examsProgress.setVisible(false);
+            showAlert(Alert.AlertType.ERROR, "Error", "Could not start exam", e.getMessage());
+        });
+    }
+    
+    private void openExamWindow(Exam examWithQuestions) {
         try {
-            // Get the exam with questions
-            Exam examWithQuestions = examService.getExamQuestions(selectedExam.getId(), studentId);
-            
             // Load the exam screen
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/client/fxml/ExamSession.fxml"));
             Parent root = loader.load();
@@ -121,43 +160,70 @@ public class StudentDashboardController implements Initializable {
             controller.startExam();
             
             // Open in a new window
+            // Modal to the dashboard so the same exam cannot be opened twice
             Stage examStage = new Stage();
+            examStage.initOwner(studentInfoLabel.getScene().getWindow());
+            examStage.initModality(Modality.WINDOW_MODAL);
             examStage.setTitle("Exam: " + examWithQuestions.getTitle());
             examStage.setScene(new Scene(root, 800, 600));
             examStage.setOnCloseRequest(e -> {
                 Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
                 alert.setTitle("Confirm Exit");
                 alert.setHeaderText("Exit Exam");
-                alert.setContentText("Are you sure you want to exit the exam? Your progress will be lost.");
+                alert.setContentText("Are you sure you want to exit the exam? Your answers so far are saved "
+                        + "and will be restored if you start this exam again before the time runs out.");
                 
                 if (alert.showAndWait().get() != ButtonType.OK) {
                     e.consume();
+                } else {
+                    controller.stopExam();
                 }
             });
-            examStage.showAndWait();
             
             // Refresh the exams and results after the exam window is closed
-            refreshExams();
-            refreshResults();
+            examStage.setOnHidden(e -> {
+                openExam = null;
+                if (controller.isSubmitted()) {
+                    heartbeat.untrack(examWithQuestions.getId());
+                }
+                refreshExams();
+                refreshResults();
+            });
+            openExam = controller;
+            examStage.show();
         } catch (Exception e) {
             showAlert(Alert.AlertType.ERROR, "Error", "Could not start exam", e.getMessage());
             e.printStackTrace();
         }
     }
     
+    // The server no longer has this session: it was submitted elsewhere or its lease lapsed
+    private void sessionEnded(int examId) {
+        if (openExam != null && openExam.getExamId() == examId) {
+            openExam.sessionEnded();
+        }
+        refreshExams();
+        refreshResults();
+    }
+    
     @FXML
     private void handleRefreshResults(ActionEvent event) {
         refreshResults();
     }
     
     private void refreshExams() {
-        try {
-            List<Exam> exams = examService.getAvailableExams(studentId);
-            availableExamsTable.setItems(FXCollections.observableArrayList(exams));
-        } catch (Exception e) {
+        examsProgress.setVisible(true);
+        AsyncExamService.onFxThread(examService.getAvailableExams(studentId, catalogVersion), catalog -> {
+            examsProgress.setVisible(false);
+            if (catalog.isModified()) {
+                catalogVersion = catalog.getVersion();
+                availableExams.setAll(catalog.getExams());
+                prefetcher.schedule(catalog.getExams());
+            }
+        }, e -> {
+            examsProgress.setVisible(false);
             showAlert(Alert.AlertType.ERROR, "Error", "Could not refresh exams", e.getMessage());
-            e.printStackTrace();
-        }
+        });
     }
     
     private void refreshResults() {
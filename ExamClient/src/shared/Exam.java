@@ -1,16 +1,24 @@
 package shared;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Date;
 import java.util.List;
 
-public class Exam implements Serializable {
+public class Exam implements Externalizable {
     private static final long serialVersionUID = 1L;
+    // Version 2 added startTime
+    private static final int WIRE_VERSION = 2;
     
     private int id;
     private String title;
     private String description;
     private int durationMinutes;
     private boolean resultsVisible;
+    private int version;
+    private Date startTime;
     private List<Question> questions;
     
     // Constructors, getters, and setters
@@ -40,9 +48,43 @@ public class Exam implements Serializable {
     public boolean isResultsVisible() { return resultsVisible; }
     public void setResultsVisible(boolean resultsVisible) { this.resultsVisible = resultsVisible; }
     
+    // Bumped by the server every time the exam content is edited
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+    
+    // When students may start; null means as soon as the exam is active
+    public Date getStartTime() { return startTime; }
+    public void setStartTime(Date startTime) { this.startTime = startTime; }
+    
     public List<Question> getQuestions() { return questions; }
     public void setQuestions(List<Question> questions) { this.questions = questions; }
     
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVersion(out, WIRE_VERSION);
+        WireFormat.writeInt(out, id);
+        WireFormat.writeString(out, title);
+        WireFormat.writeString(out, description);
+        WireFormat.writeInt(out, durationMinutes);
+        out.writeBoolean(resultsVisible);
+        WireFormat.writeInt(out, version);
+        WireFormat.writeQuestions(out, questions);
+        WireFormat.writeDate(out, startTime);
+    }
+    
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        int wireVersion = WireFormat.readVersion(in, Exam.class, WIRE_VERSION);
+        id = WireFormat.readInt(in);
+        title = WireFormat.readString(in);
+        description = WireFormat.readString(in);
+        durationMinutes = WireFormat.readInt(in);
+        resultsVisible = in.readBoolean();
+        version = WireFormat.readInt(in);
+        questions = WireFormat.readQuestions(in);
+        startTime = wireVersion >= 2 ? WireFormat.readDate(in) : null;
+    }
+    
     @Override
     public String toString() {
         return title + " (" + durationMinutes + " minutes)";
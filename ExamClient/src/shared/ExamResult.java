@@ -1,10 +1,14 @@
 package shared;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.Date;
 
-public class ExamResult implements Serializable {
+public class ExamResult implements Externalizable {
     private static final long serialVersionUID = 1L;
+    private static final int WIRE_VERSION = 1;
     
     private int id;
     private int examId;
@@ -53,4 +57,28 @@ public class ExamResult implements Serializable {
     public double getPercentage() {
         return totalPossible > 0 ? (double) score / totalPossible * 100 : 0;
     }
+    
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVersion(out, WIRE_VERSION);
+        WireFormat.writeInt(out, id);
+        WireFormat.writeInt(out, examId);
+        WireFormat.writeString(out, studentId);
+        WireFormat.writeString(out, studentName);
+        WireFormat.writeInt(out, score);
+        WireFormat.writeInt(out, totalPossible);
+        WireFormat.writeDate(out, submissionTime);
+    }
+    
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readVersion(in, ExamResult.class, WIRE_VERSION);
+        id = WireFormat.readInt(in);
+        examId = WireFormat.readInt(in);
+        studentId = WireFormat.readString(in);
+        studentName = WireFormat.readString(in);
+        score = WireFormat.readInt(in);
+        totalPossible = WireFormat.readInt(in);
+        submissionTime = WireFormat.readDate(in);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,160 @@
+package shared;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Field encoding shared by the Externalizable DTOs. Each object starts with
+ * a format version byte so either side can reject data it does not
+ * understand. Ints and lengths are varints, and nested objects are
+ * written inline rather than through writeObject(), so they carry no
+ * per-object stream header.
+ */
+final class WireFormat {
+
+    private WireFormat() {
+    }
+
+    static void writeVersion(ObjectOutput out, int version) throws IOException {
+        out.writeByte(version);
+    }
+
+    // Returns the version read so older layouts can still be decoded; newer ones are rejected
+    static int readVersion(ObjectInput in, Class<?> type, int supported) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > supported) {
+            throw new InvalidClassException(type.getName(),
+                    "unsupported wire format version " + version + " (supports up to " + supported + ")");
+        }
+        return version;
+    }
+
+    // Zigzag varint: small values of either sign take one byte instead of four
+    static void writeInt(ObjectOutput out, int value) throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    static int readInt(ObjectInput in) throws IOException {
+        int zigzag = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+    // Length-prefixed UTF-8, -1 for null; unlike writeUTF() there is no 64 KB limit
+    static void writeString(ObjectOutput out, String value) throws IOException {
+        if (value == null) {
+            writeInt(out, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ObjectInput in) throws IOException {
+        int length = readInt(in);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Null lists are written as length -1
+    static void writeStrings(ObjectOutput out, List<String> values) throws IOException {
+        writeInt(out, values != null ? values.size() : -1);
+        if (values != null) {
+            for (String value : values) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    static List<String> readStrings(ObjectInput in) throws IOException {
+        int size = readInt(in);
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    static void writeDate(ObjectOutput out, Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getTime());
+        }
+    }
+
+    static Date readDate(ObjectInput in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+
+    static void writeQuestions(ObjectOutput out, List<Question> questions) throws IOException {
+        writeInt(out, questions != null ? questions.size() : -1);
+        if (questions != null) {
+            for (Question question : questions) {
+                question.writeExternal(out);
+            }
+        }
+    }
+
+    static List<Question> readQuestions(ObjectInput in) throws IOException {
+        int size = readInt(in);
+        if (size < 0) {
+            return null;
+        }
+        List<Question> questions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Question question = new Question();
+            question.readExternal(in);
+            questions.add(question);
+        }
+        return questions;
+    }
+
+    static void writeResults(ObjectOutput out, List<ExamResult> results) throws IOException {
+        writeInt(out, results != null ? results.size() : -1);
+        if (results != null) {
+            for (ExamResult result : results) {
+                result.writeExternal(out);
+            }
+        }
+    }
+
+    static List<ExamResult> readResults(ObjectInput in) throws IOException {
+        int size = readInt(in);
+        if (size < 0) {
+            return null;
+        }
+        List<ExamResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ExamResult result = new ExamResult();
+            result.readExternal(in);
+            results.add(result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,132 @@
+package client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.rmi.registry.LocateRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import shared.RemoteExamService;
+
+/**
+ * Client half of the RMI against NIO transport comparison, driving
+ * server.TransportLoadServer from the ExamServer project. It first opens
+ * and holds one idle connection per simulated student machine; RMI ones
+ * complete the JRMP handshake so the server dedicates a thread to each,
+ * as it does for a real client. Then it times catalog calls from a fixed
+ * pool of callers and prints throughput and latency percentiles per
+ * round; the first round includes warm-up. Run with
+ * java -cp build/classes:build/test/classes client.TransportLoadClient rmi|nio host port [held] [calls] [callers]
+ */
+class TransportLoadClient {
+
+    // JRMP stream protocol: magic, version, StreamProtocol, then ProtocolAck
+    private static final int JRMP_MAGIC = 0x4a524d49;
+    private static final int JRMP_VERSION = 2;
+    private static final int JRMP_STREAM_PROTOCOL = 0x4b;
+    private static final int JRMP_PROTOCOL_ACK = 0x4e;
+
+    private static final int ROUNDS = 2;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || !(args[0].equals("rmi") || args[0].equals("nio"))) {
+            System.err.println("Usage: TransportLoadClient rmi|nio host port [held] [calls] [callers]");
+            System.exit(2);
+        }
+        boolean rmi = args[0].equals("rmi");
+        String host = args[1];
+        int port = Integer.parseInt(args[2]);
+        int held = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+        int calls = args.length > 4 ? Integer.parseInt(args[4]) : 20000;
+        int callers = args.length > 5 ? Integer.parseInt(args[5]) : 64;
+
+        RemoteExamService service = rmi
+                ? (RemoteExamService) LocateRegistry.getRegistry(host, port).lookup("ExamService")
+                : NioExamServiceClient.connect(host, port);
+        service.getAvailableExams("warm-up", -1L);
+
+        List<Socket> connections = new ArrayList<>(held);
+        long started = System.nanoTime();
+        for (int i = 0; i < held; i++) {
+            Socket socket = new Socket(host, port);
+            if (rmi) {
+                handshake(socket);
+            }
+            connections.add(socket);
+        }
+        System.out.println(String.format("held %d connections in %d ms; sample the server now",
+                held, (System.nanoTime() - started) / 1000000));
+        Thread.sleep(7000);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            runRound(args[0], round, service, held, calls, callers);
+        }
+
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        System.exit(0);
+    }
+
+    // Leaves the connection idle after the handshake, the way RMI keeps a pooled one
+    private static void handshake(Socket socket) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(JRMP_MAGIC);
+        out.writeShort(JRMP_VERSION);
+        out.writeByte(JRMP_STREAM_PROTOCOL);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        if (in.readByte() != JRMP_PROTOCOL_ACK) {
+            throw new IOException("RMI server did not acknowledge the stream protocol");
+        }
+        in.readUTF();
+        in.readInt();
+        out.writeUTF(socket.getLocalAddress().getHostAddress());
+        out.writeInt(0);
+        out.flush();
+    }
+
+    private static void runRound(String transport, int round, RemoteExamService service, int held,
+            int calls, int callers) throws InterruptedException {
+        long[] latencies = new long[calls];
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<?>> futures = new ArrayList<>(calls);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            final int call = i;
+            futures.add(pool.submit(() -> {
+                long start = System.nanoTime();
+                service.getAvailableExams("student-" + call, -1L);
+                latencies[call] = System.nanoTime() - start;
+                return null;
+            }));
+        }
+        int errors = 0;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                errors++;
+            }
+        }
+        double wallMillis = (System.nanoTime() - started) / 1e6;
+        pool.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.println(String.format("%s round %d: %d calls, %d callers, %d held connections: %.0f ms wall, "
+                + "%.0f calls/s, p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms, errors %d",
+                transport, round, calls, callers, held, wallMillis, calls / (wallMillis / 1000),
+                latencies[calls / 2] / 1e6, latencies[(int) (calls * 0.99)] / 1e6,
+                latencies[(int) (calls * 0.999)] / 1e6, latencies[calls - 1] / 1e6, errors));
+    }
+}
@@ -0,0 +1,55 @@
+package server;
+
+/**
+ * Read-only view of one exam session and its lease for the admin
+ * "Active Sessions" tab. All times are epoch milliseconds.
+ */
+public class ActiveSessionInfo {
+
+    private final String studentId;
+    private final int examId;
+    private final String examTitle;
+    private final long startTime;
+    private final long deadline;
+    private final long lastHeartbeat;
+    private final long leaseExpiresAt;
+
+    public ActiveSessionInfo(String studentId, int examId, String examTitle, long startTime,
+            long deadline, long lastHeartbeat, long leaseExpiresAt) {
+        this.studentId = studentId;
+        this.examId = examId;
+        this.examTitle = examTitle;
+        this.startTime = startTime;
+        this.deadline = deadline;
+        this.lastHeartbeat = lastHeartbeat;
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public int getExamId() {
+        return examId;
+    }
+
+    public String getExamTitle() {
+        return examTitle;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public long getLastHeartbeat() {
+        return lastHeartbeat;
+    }
+
+    public long getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+}
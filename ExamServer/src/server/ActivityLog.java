@@ -0,0 +1,11 @@
+package server;
+
+/**
+ * Receives human-readable server activity. Implemented by the admin UI;
+ * ExamServiceImpl falls back to standard output when none is attached,
+ * so the service can also run headless.
+ */
+public interface ActivityLog {
+
+    void logActivity(String message);
+}
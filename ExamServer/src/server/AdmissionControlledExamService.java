@@ -0,0 +1,166 @@
+package server;
+
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import shared.Answer;
+import shared.Exam;
+import shared.ExamCatalog;
+import shared.ExamResult;
+import shared.RemoteExamService;
+import shared.ResultPage;
+
+/**
+ * The object actually exported over RMI. Every call passes through the
+ * admission gate for its kind of work before reaching ExamServiceImpl, so
+ * an exam-start storm queues briefly and then gets "busy, retry later"
+ * instead of spawning a thread and a database query per student.
+ */
+public class AdmissionControlledExamService implements RemoteExamService {
+
+    // Exam starts hit the retake check and, on a cache miss, the exam content query
+    private final AdmissionGate startGate = new AdmissionGate("exam start", 16, 200, 2000);
+    // Submissions only append to the journal, but students must not lose them, so they may wait longer
+    private final AdmissionGate submitGate = new AdmissionGate("submit", 16, 500, 5000);
+    // Prefetch downloads are spread over a window, so they get few slots and never crowd out starts
+    private final AdmissionGate prefetchGate = new AdmissionGate("prefetch", 4, 100, 2000);
+    private final AdmissionGate progressGate = new AdmissionGate("progress", 8, 500, 1000);
+    private final AdmissionGate studentReadGate = new AdmissionGate("student read", 16, 200, 2000);
+    private final AdmissionGate teacherGate = new AdmissionGate("teacher", 4, 50, 5000);
+
+    private final ExamServiceImpl delegate;
+
+    public AdmissionControlledExamService(ExamServiceImpl delegate) {
+        this.delegate = delegate;
+        delegate.addMetricsSource(this::reportMetrics);
+    }
+
+    private interface RemoteCall<T> {
+        T call() throws RemoteException;
+    }
+
+    private <T> T admit(AdmissionGate gate, RemoteCall<T> call) throws RemoteException {
+        gate.enter();
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            gate.exit(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean authenticateUser(String username, String password, boolean isTeacher) throws RemoteException {
+        return admit(studentReadGate, () -> delegate.authenticateUser(username, password, isTeacher));
+    }
+
+    @Override
+    public List<Exam> getAvailableExams(String studentId) throws RemoteException {
+        return admit(studentReadGate, () -> delegate.getAvailableExams(studentId));
+    }
+
+    @Override
+    public ExamCatalog getAvailableExams(String studentId, long knownVersion) throws RemoteException {
+        return admit(studentReadGate, () -> delegate.getAvailableExams(studentId, knownVersion));
+    }
+
+    @Override
+    public Exam getExamQuestions(int examId, String studentId) throws RemoteException {
+        return admit(startGate, () -> delegate.getExamQuestions(examId, studentId));
+    }
+
+    @Override
+    public byte[] getExamPayload(int examId, String studentId) throws RemoteException {
+        return admit(startGate, () -> delegate.getExamPayload(examId, studentId));
+    }
+
+    @Override
+    public byte[] getExamPackage(int examId, String studentId) throws RemoteException {
+        return admit(prefetchGate, () -> delegate.getExamPackage(examId, studentId));
+    }
+
+    @Override
+    public byte[] releaseExamKey(int examId, String studentId, int examVersion) throws RemoteException {
+        return admit(startGate, () -> delegate.releaseExamKey(examId, studentId, examVersion));
+    }
+
+    @Override
+    public boolean submitExam(int examId, String studentId, List<Answer> answers) throws RemoteException {
+        return admit(submitGate, () -> delegate.submitExam(examId, studentId, answers));
+    }
+
+    @Override
+    public boolean submitExamPacked(int examId, String studentId, int examVersion, int[] selectedOptions)
+            throws RemoteException {
+        return admit(submitGate, () -> delegate.submitExamPacked(examId, studentId, examVersion, selectedOptions));
+    }
+
+    @Override
+    public void saveProgress(int examId, String studentId, int examVersion,
+            int[] questionIndexes, int[] selectedOptions) throws RemoteException {
+        admit(progressGate, () -> {
+            delegate.saveProgress(examId, studentId, examVersion, questionIndexes, selectedOptions);
+            return null;
+        });
+    }
+
+    @Override
+    public int[] getSavedProgress(int examId, String studentId, int examVersion) throws RemoteException {
+        return admit(progressGate, () -> delegate.getSavedProgress(examId, studentId, examVersion));
+    }
+
+    @Override
+    public boolean heartbeat(int examId, String studentId) throws RemoteException {
+        return admit(progressGate, () -> delegate.heartbeat(examId, studentId));
+    }
+
+    @Override
+    public long getTimeRemaining(int examId, String studentId) throws RemoteException {
+        return admit(progressGate, () -> delegate.getTimeRemaining(examId, studentId));
+    }
+
+    @Override
+    public ExamResult getExamResult(int examId, String studentId) throws RemoteException {
+        return admit(studentReadGate, () -> delegate.getExamResult(examId, studentId));
+    }
+
+    @Override
+    public boolean createExam(Exam exam) throws RemoteException {
+        return admit(teacherGate, () -> delegate.createExam(exam));
+    }
+
+    @Override
+    public boolean updateExam(Exam exam) throws RemoteException {
+        return admit(teacherGate, () -> delegate.updateExam(exam));
+    }
+
+    @Override
+    public boolean deleteExam(int examId) throws RemoteException {
+        return admit(teacherGate, () -> delegate.deleteExam(examId));
+    }
+
+    @Override
+    public List<ExamResult> getExamResults(int examId) throws RemoteException {
+        return admit(teacherGate, () -> delegate.getExamResults(examId));
+    }
+
+    @Override
+    public ResultPage getExamResultsPage(int examId, int afterScore, int afterId, int pageSize)
+            throws RemoteException {
+        return admit(teacherGate, () -> delegate.getExamResultsPage(examId, afterScore, afterId, pageSize));
+    }
+
+    @Override
+    public boolean setResultVisibility(int examId, boolean visible) throws RemoteException {
+        return admit(teacherGate, () -> delegate.setResultVisibility(examId, visible));
+    }
+
+    public void reportMetrics(Map<String, String> metrics) {
+        startGate.reportMetrics(metrics);
+        submitGate.reportMetrics(metrics);
+        prefetchGate.reportMetrics(metrics);
+        progressGate.reportMetrics(metrics);
+        studentReadGate.reportMetrics(metrics);
+        teacherGate.reportMetrics(metrics);
+    }
+}
@@ -0,0 +1,117 @@
+package server;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import shared.ServerBusyException;
+
+/**
+ * Concurrency limit for one class of remote calls. Up to maxConcurrent
+ * calls run at once and up to maxQueued more wait, each for at most
+ * maxWaitMillis; anything beyond that is turned away immediately with a
+ * ServerBusyException carrying a retry hint, so a burst costs the server
+ * a bounded number of threads and database connections.
+ */
+public class AdmissionGate {
+
+    private static final long MIN_RETRY_AFTER_MILLIS = 50;
+    private static final long MAX_RETRY_AFTER_MILLIS = 5000;
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitMillis;
+
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicLong admittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong totalServiceNanos = new AtomicLong();
+
+    public AdmissionGate(String name, int maxConcurrent, int maxQueued, long maxWaitMillis) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public void enter() throws ServerBusyException {
+        // Zero-wait timed form, which queues behind earlier waiters; plain tryAcquire() would barge past them
+        if (acquire(0)) {
+            admittedCount.incrementAndGet();
+            return;
+        }
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            throw reject("Server is busy (" + name + " queue full)");
+        }
+
+        long waitStart = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = acquire(maxWaitMillis);
+        } finally {
+            queued.decrementAndGet();
+        }
+        recordWait(System.nanoTime() - waitStart);
+
+        if (!acquired) {
+            throw reject("Server is busy (" + name + " wait exceeded " + maxWaitMillis + " ms)");
+        }
+        admittedCount.incrementAndGet();
+    }
+
+    private boolean acquire(long waitMillis) {
+        try {
+            return permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void exit(long serviceNanos) {
+        totalServiceNanos.addAndGet(serviceNanos);
+        permits.release();
+    }
+
+    private ServerBusyException reject(String message) {
+        rejectedCount.incrementAndGet();
+        return new ServerBusyException(message, retryAfterMillis());
+    }
+
+    // Roughly how long until the current queue has drained, from the average service time
+    private long retryAfterMillis() {
+        long admitted = admittedCount.get();
+        long averageServiceMillis = admitted > 0 ? totalServiceNanos.get() / admitted / 1000000 : 0;
+        long estimate = averageServiceMillis * (queued.get() + maxConcurrent) / maxConcurrent;
+        return Math.max(MIN_RETRY_AFTER_MILLIS, Math.min(MAX_RETRY_AFTER_MILLIS, estimate));
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.addAndGet(waitNanos);
+        long currentMax;
+        do {
+            currentMax = maxWaitNanos.get();
+        } while (waitNanos > currentMax && !maxWaitNanos.compareAndSet(currentMax, waitNanos));
+    }
+
+    public void reportMetrics(Map<String, String> metrics) {
+        long admitted = admittedCount.get();
+        String prefix = "Admission " + name + ": ";
+        metrics.put(prefix + "in flight", (maxConcurrent - permits.availablePermits()) + " / " + maxConcurrent);
+        metrics.put(prefix + "queued", queued.get() + " / " + maxQueued);
+        metrics.put(prefix + "admitted", String.valueOf(admitted));
+        metrics.put(prefix + "rejected", String.valueOf(rejectedCount.get()));
+        metrics.put(prefix + "average queue wait (ms)",
+                admitted > 0 ? String.format("%.2f", totalWaitNanos.get() / 1e6 / admitted) : "-");
+        metrics.put(prefix + "max queue wait (ms)", String.format("%.2f", maxWaitNanos.get() / 1e6));
+    }
+}
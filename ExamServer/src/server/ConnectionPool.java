@@ -0,0 +1,348 @@
+package server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool. Borrowed connections are handed out as
+ * proxies whose close() returns the physical connection to the pool, so
+ * callers keep releasing them through DatabaseManager.closeResources().
+ */
+public class ConnectionPool {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final long leakThresholdMillis;
+
+    // Permits bound the number of connections that may be borrowed at once
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, BorrowRecord> borrowed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService leakDetector;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong reclaimedCount = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String url, String user, String password,
+            int maxSize, long maxWaitMillis, long leakThresholdMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, leakThresholdMillis / 2);
+        leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + maxWaitMillis
+                        + " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - waitStart);
+
+        try {
+            Connection physical = takeValidIdleConnection();
+            if (physical == null) {
+                physical = DriverManager.getConnection(url, user, password);
+                createdCount.incrementAndGet();
+            }
+
+            borrowed.put(physical, new BorrowRecord(Thread.currentThread().getName(), new Throwable()));
+            borrowCount.incrementAndGet();
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection takeValidIdleConnection() {
+        Connection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            try {
+                if (candidate.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    return candidate;
+                }
+            } catch (SQLException e) {
+                // Treat as invalid and fall through to discard
+            }
+            discard(candidate);
+        }
+        return null;
+    }
+
+    private void release(Connection physical) {
+        if (borrowed.remove(physical) == null) {
+            // Already returned (double close) or reclaimed
+            return;
+        }
+
+        try {
+            if (closed || physical.isClosed()) {
+                discard(physical);
+            } else {
+                // Undo any transaction state left behind by the borrower
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                idle.offerFirst(physical);
+            }
+        } catch (SQLException e) {
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(Connection physical) {
+        discardedCount.incrementAndGet();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            // Nothing more we can do with a broken connection
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.addAndGet(waitNanos);
+        long currentMax;
+        do {
+            currentMax = maxWaitNanos.get();
+        } while (waitNanos > currentMax && !maxWaitNanos.compareAndSet(currentMax, waitNanos));
+    }
+
+    // A leaked connection is taken back so it cannot shrink the pool for good; the borrower's
+    // later close() finds it gone and does nothing, and any further use fails with an SQLException
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Connection, BorrowRecord> entry : borrowed.entrySet()) {
+            BorrowRecord record = entry.getValue();
+            if (now - record.borrowedAt > leakThresholdMillis && borrowed.remove(entry.getKey(), record)) {
+                leakCount.incrementAndGet();
+                System.err.println("Connection leak: connection borrowed by thread "
+                        + record.threadName + " was not returned after "
+                        + (now - record.borrowedAt) + " ms and has been closed. Borrowed at:");
+                record.borrowSite.printStackTrace();
+
+                discard(entry.getKey());
+                reclaimedCount.incrementAndGet();
+                permits.release();
+            }
+        }
+    }
+
+    public Stats getStats() {
+        long borrows = borrowCount.get();
+        return new Stats(
+                maxSize,
+                borrowed.size(),
+                idle.size(),
+                permits.getQueueLength(),
+                borrows,
+                borrows > 0 ? totalWaitNanos.get() / borrows / 1000 : 0,
+                maxWaitNanos.get() / 1000,
+                timeoutCount.get(),
+                createdCount.get(),
+                discardedCount.get(),
+                leakCount.get(),
+                reclaimedCount.get()
+        );
+    }
+
+    public void close() {
+        closed = true;
+        leakDetector.shutdownNow();
+
+        List<Connection> drained = new ArrayList<>();
+        idle.drainTo(drained);
+        for (Connection connection : drained) {
+            discard(connection);
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    // Routes close() back to the pool; everything else goes to the physical connection
+    private class PooledConnectionHandler implements InvocationHandler {
+
+        private final Connection physical;
+        private boolean returned = false;
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if ("close".equals(name)) {
+                if (!returned) {
+                    returned = true;
+                    release(physical);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return returned || physical.isClosed();
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static class BorrowRecord {
+
+        private final long borrowedAt = System.currentTimeMillis();
+        private final String threadName;
+        private final Throwable borrowSite;
+
+        BorrowRecord(String threadName, Throwable borrowSite) {
+            this.threadName = threadName;
+            this.borrowSite = borrowSite;
+        }
+    }
+
+    // Point-in-time view of the pool for the admin UI
+    public static class Stats {
+
+        private final int maxSize;
+        private final int active;
+        private final int idle;
+        private final int waiting;
+        private final long borrowCount;
+        private final long averageWaitMicros;
+        private final long maxWaitMicros;
+        private final long timeoutCount;
+        private final long createdCount;
+        private final long discardedCount;
+        private final long leakCount;
+        private final long reclaimedCount;
+
+        public Stats(int maxSize, int active, int idle, int waiting, long borrowCount,
+                long averageWaitMicros, long maxWaitMicros, long timeoutCount,
+                long createdCount, long discardedCount, long leakCount, long reclaimedCount) {
+            this.maxSize = maxSize;
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.borrowCount = borrowCount;
+            this.averageWaitMicros = averageWaitMicros;
+            this.maxWaitMicros = maxWaitMicros;
+            this.timeoutCount = timeoutCount;
+            this.createdCount = createdCount;
+            this.discardedCount = discardedCount;
+            this.leakCount = leakCount;
+            this.reclaimedCount = reclaimedCount;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getWaiting() {
+            return waiting;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public long getAverageWaitMicros() {
+            return averageWaitMicros;
+        }
+
+        public long getMaxWaitMicros() {
+            return maxWaitMicros;
+        }
+
+        public long getTimeoutCount() {
+            return timeoutCount;
+        }
+
+        public long getCreatedCount() {
+            return createdCount;
+        }
+
+        public long getDiscardedCount() {
+            return discardedCount;
+        }
+
+        public long getLeakCount() {
+            return leakCount;
+        }
+
+        public long getReclaimedCount() {
+            return reclaimedCount;
+        }
+    }
+}
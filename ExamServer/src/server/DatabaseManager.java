@@ -1,22 +1,39 @@
 package server;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class DatabaseManager {
     
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/exam_system";
+    // rewriteBatchedStatements turns JDBC batches into multi-row INSERTs
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/exam_system"
+            + "?rewriteBatchedStatements=true&createDatabaseIfNotExist=true";
     private static final String DB_USER = "root";
     private static final String DB_PASSWORD = ""; // Default XAMPP password is empty
     
+    // Connection pool settings
+    private static final int POOL_MAX_SIZE = 20;
+    private static final long POOL_MAX_WAIT_MILLIS = 5000;
+    private static final long POOL_LEAK_THRESHOLD_MILLIS = 60000;
+    
+    // Shared by every DatabaseManager so the login screen and the exam service use one pool
+    private static volatile ConnectionPool pool;
+    private static boolean schemaReady = false;
+    
     public DatabaseManager() {
         try {
             // Load the JDBC driver
             Class.forName("com.mysql.cj.jdbc.Driver");
             
+            synchronized (DatabaseManager.class) {
+                if (pool == null) {
+                    pool = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD,
+                            POOL_MAX_SIZE, POOL_MAX_WAIT_MILLIS, POOL_LEAK_THRESHOLD_MILLIS);
+                }
+            }
+            
             // Initialize the database if needed
             initializeDatabase();
         } catch (ClassNotFoundException e) {
@@ -29,14 +46,30 @@ public class DatabaseManager {
     }
     
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        ConnectionPool current = pool;
+        if (current == null) {
+            throw new SQLException("Database connection pool has been shut down");
+        }
+        return current.borrow();
+    }
+    
+    public ConnectionPool.Stats getPoolStats() {
+        ConnectionPool current = pool;
+        return current != null ? current.getStats() : null;
+    }
+    
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
     }
     
     public void closeResources(Connection conn, PreparedStatement stmt, ResultSet rs) {
         try {
             if (rs != null) rs.close();
             if (stmt != null) stmt.close();
-            if (conn != null) conn.close();
+            if (conn != null) conn.close(); // Returns pooled connections to the pool
         } catch (SQLException e) {
             System.err.println("Error closing database resources: " + e.getMessage());
             e.printStackTrace();
@@ -44,8 +77,16 @@ public class DatabaseManager {
     }
     
     private void initializeDatabase() throws SQLException {
-        // This method would create the database and tables if they don't exist
-        // For simplicity, we'll assume the database is already set up
-        // In a real application, you would include the SQL to create the schema
+        synchronized (DatabaseManager.class) {
+            if (schemaReady) {
+                return;
+            }
+
+            // Create or upgrade the schema, then warn about any index the hot queries need
+            SchemaMigrator migrator = new SchemaMigrator(this);
+            migrator.migrate();
+            migrator.checkIndexes();
+            schemaReady = true;
+        }
     }
-}
\ No newline at end of file
+}
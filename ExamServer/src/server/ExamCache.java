@@ -0,0 +1,144 @@
+package server;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded LRU cache of exam snapshots keyed by exam id. Concurrent
+ * misses for the same exam share a single load, so a start storm hits the
+ * database once. Entries are only removed by eviction or by invalidate(),
+ * which the exam mutation methods call explicitly.
+ */
+public class ExamCache {
+
+    public interface Loader {
+
+        ExamSnapshot load(int examId) throws SQLException;
+    }
+
+    private final int maxEntries;
+    private final Map<Integer, ExamSnapshot> entries;
+    private final Map<Integer, FutureTask<ExamSnapshot>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ExamCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Integer, ExamSnapshot>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ExamSnapshot> eldest) {
+                if (size() > ExamCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Returns the cached snapshot, or loads it if absent; null if the exam does not exist
+    public ExamSnapshot get(int examId, Loader loader) throws SQLException {
+        synchronized (entries) {
+            ExamSnapshot cached = entries.get(examId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        misses.incrementAndGet();
+
+        FutureTask<ExamSnapshot> task = new FutureTask<>(() -> loader.load(examId));
+        FutureTask<ExamSnapshot> existing = inFlight.putIfAbsent(examId, task);
+        if (existing == null) {
+            loads.incrementAndGet();
+            try {
+                task.run();
+                ExamSnapshot loaded = task.get();
+
+                // Only publish if no invalidation happened while we were loading
+                synchronized (entries) {
+                    if (loaded != null && inFlight.get(examId) == task) {
+                        entries.put(examId, loaded);
+                    }
+                }
+                return loaded;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while loading exam " + examId, e);
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            } finally {
+                inFlight.remove(examId, task);
+            }
+        }
+
+        try {
+            return existing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading exam " + examId, e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    public void invalidate(int examId) {
+        synchronized (entries) {
+            entries.remove(examId);
+            inFlight.remove(examId);
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    // Misses that actually went to the database rather than joining an in-flight load
+    public long getLoads() {
+        return loads.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    private static SQLException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof SQLException) {
+            return (SQLException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new SQLException("Failed to load exam", cause);
+    }
+}
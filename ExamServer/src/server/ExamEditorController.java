@@ -1,7 +1,10 @@
 package server;
 
 import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.ResourceBundle;
 import javafx.collections.FXCollections;
@@ -32,6 +35,8 @@ public class ExamEditorController implements Initializable {
     @FXML
     private TextField examDurationField;
     @FXML
+    private TextField examStartTimeField;
+    @FXML
     private CheckBox resultsVisibleCheckbox;
 
     // Questions table
@@ -59,6 +64,7 @@ public class ExamEditorController implements Initializable {
     private List<RadioButton> optionRadioButtons = new ArrayList<>();
     private ToggleGroup optionsGroup = new ToggleGroup();
     private boolean isEditMode = false;
+    private final SimpleDateFormat startTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
@@ -76,6 +82,8 @@ public class ExamEditorController implements Initializable {
                 }
         );
 
+        startTimeFormat.setLenient(false);
+
         // Initialize with a blank question editor
         resetQuestionEditor();
     }
@@ -94,6 +102,7 @@ public class ExamEditorController implements Initializable {
         examTitleField.setText(exam.getTitle());
         examDescriptionField.setText(exam.getDescription());
         examDurationField.setText(String.valueOf(exam.getDurationMinutes()));
+        examStartTimeField.setText(exam.getStartTime() != null ? startTimeFormat.format(exam.getStartTime()) : "");
         resultsVisibleCheckbox.setSelected(exam.isResultsVisible());
 
         // Load questions
@@ -194,6 +203,7 @@ public class ExamEditorController implements Initializable {
             currentExam.setTitle(examTitleField.getText().trim());
             currentExam.setDescription(examDescriptionField.getText().trim());
             currentExam.setDurationMinutes(Integer.parseInt(examDurationField.getText().trim()));
+            currentExam.setStartTime(parseStartTime());
             currentExam.setResultsVisible(resultsVisibleCheckbox.isSelected());
             currentExam.setQuestions(new ArrayList<>(questions));
 
@@ -327,6 +337,12 @@ public class ExamEditorController implements Initializable {
         }
     }
 
+    // Null when the field is empty: the exam can be started as soon as it is active
+    private Date parseStartTime() throws ParseException {
+        String text = examStartTimeField.getText().trim();
+        return text.isEmpty() ? null : startTimeFormat.parse(text);
+    }
+
     private boolean validateExam() {
         // Check exam title
         if (examTitleField.getText().trim().isEmpty()) {
@@ -349,6 +365,15 @@ public class ExamEditorController implements Initializable {
             return false;
         }
 
+        // Check the optional start time
+        try {
+            parseStartTime();
+        } catch (ParseException e) {
+            showAlert(Alert.AlertType.WARNING, "Validation Error",
+                    "Invalid Start Time", "Please enter the start time as yyyy-MM-dd HH:mm, or leave it empty.");
+            return false;
+        }
+
         // Check if there are questions
         if (questions.isEmpty()) {
             showAlert(Alert.AlertType.WARNING, "Validation Error",
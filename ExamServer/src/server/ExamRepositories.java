@@ -0,0 +1,60 @@
+package server;
+
+/**
+ * Chooses the storage backend at startup from system properties:
+ *
+ *   -Dexam.repository=mysql   (default) MySQL through DatabaseManager
+ *   -Dexam.repository=memory  InMemoryExamRepository, no database needed
+ *
+ * The in-memory backend can be seeded with accounts via
+ * -Dexam.memory.users=teacher:alice:secret,student:S001:pass
+ */
+public final class ExamRepositories {
+
+    private static ExamRepository repository;
+
+    private ExamRepositories() {
+    }
+
+    // The repository shared by the login screen and the exam service
+    public static synchronized ExamRepository getDefault() {
+        if (repository == null) {
+            repository = create(System.getProperty("exam.repository", "mysql"));
+        }
+        return repository;
+    }
+
+    public static ExamRepository create(String type) {
+        if ("memory".equalsIgnoreCase(type)) {
+            InMemoryExamRepository memory = new InMemoryExamRepository();
+            seedUsers(memory, System.getProperty("exam.memory.users", ""));
+            return memory;
+        }
+        if ("mysql".equalsIgnoreCase(type)) {
+            return new MySqlExamRepository(new DatabaseManager());
+        }
+        throw new IllegalArgumentException("Unknown exam.repository type: " + type);
+    }
+
+    public static synchronized void shutdown() {
+        if (repository != null) {
+            repository.close();
+            repository = null;
+        }
+    }
+
+    private static void seedUsers(InMemoryExamRepository memory, String spec) {
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                continue;
+            }
+
+            if ("teacher".equalsIgnoreCase(parts[0])) {
+                memory.addTeacher(parts[1], parts[2], parts[1]);
+            } else if ("student".equalsIgnoreCase(parts[0])) {
+                memory.addStudent(parts[1], parts[2], parts[1]);
+            }
+        }
+    }
+}
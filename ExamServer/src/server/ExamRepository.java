@@ -0,0 +1,55 @@
+package server;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import shared.Exam;
+import shared.ExamResult;
+import shared.ResultPage;
+
+/**
+ * Storage for exams, questions, results, answers and users. ExamServiceImpl
+ * holds the exam logic and only talks to storage through this interface,
+ * so the backend can be swapped at startup (see ExamRepositories).
+ */
+public interface ExamRepository {
+
+    // Users
+    boolean authenticate(String username, String password, boolean isTeacher) throws SQLException;
+
+    // Exams and questions
+    List<Exam> findActiveExams() throws SQLException;
+
+    // Returns the exam with its questions and options, or null if it does not exist
+    Exam findExamWithQuestions(int examId) throws SQLException;
+
+    // Returns the exam header without questions, or null if it does not exist
+    Exam findExam(int examId) throws SQLException;
+
+    int createExam(Exam exam) throws SQLException;
+
+    boolean updateExam(Exam exam) throws SQLException;
+
+    boolean deactivateExam(int examId) throws SQLException;
+
+    boolean setResultsVisible(int examId, boolean visible) throws SQLException;
+
+    // Results and answers
+    ExamResult findResult(int examId, String studentId) throws SQLException;
+
+    List<ExamResult> findResults(int examId) throws SQLException;
+
+    // Student ids with a stored result, grouped by exam id; read once at startup
+    Map<Integer, List<String>> findSubmittedStudentIds() throws SQLException;
+
+    // Results ordered by score descending then id, starting after the (afterScore, afterId) cursor; afterId 0 starts at the top
+    ResultPage findResultsPage(int examId, int afterScore, int afterId, int pageSize) throws SQLException;
+
+    // Stores results and answers for the whole batch atomically; already stored submissions are skipped
+    void saveSubmissions(List<Submission> batch) throws SQLException;
+
+    // Adds backend-specific figures to the admin metrics view
+    void reportMetrics(Map<String, String> metrics);
+
+    void close();
+}
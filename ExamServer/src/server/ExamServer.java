@@ -14,7 +14,13 @@ public class ExamServer extends Application {
 
     private static final int RMI_PORT = 1099;
     private static final String SERVICE_NAME = "ExamService";
+    // "rmi" (default), "nio" or "both"; prefer "nio" once sittings reach thousands of students
+    private static final String TRANSPORT = System.getProperty("exam.transport", "rmi");
+    private static final int NIO_PORT = Integer.getInteger("exam.nioPort", 1100);
     private static Registry registry;
+    private static ExamServiceImpl service;
+    private static AdmissionControlledExamService exportedService;
+    private static NioExamServer nioServer;
 
     @Override
     public void start(Stage primaryStage) throws Exception {
@@ -28,18 +34,40 @@ public class ExamServer extends Application {
         primaryStage.show();
     }
 
-    public static void startRMIService(ExamServiceImpl examService) {
+    // One service per process: it owns the journals in the data directory, and the exported
+    // instance must be the one the admin UI edits exams through, or students get stale caches
+    public static synchronized ExamServiceImpl startService(ActivityLog activityLog, ExamRepository repository) {
+        if (service != null) {
+            service.setActivityLog(activityLog);
+            return service;
+        }
+        service = new ExamServiceImpl(activityLog, repository);
+        startTransports(service);
+        return service;
+    }
+
+    private static void startTransports(ExamServiceImpl examService) {
         try {
-            // Start the RMI service
-            RemoteExamService stub = (RemoteExamService) UnicastRemoteObject.exportObject(examService, 0);
+            // Remote calls go through admission control first, whichever transport carries them
+            exportedService = new AdmissionControlledExamService(examService);
 
-            // Create and start the RMI registry
-            registry = LocateRegistry.createRegistry(RMI_PORT);
-            registry.rebind(SERVICE_NAME, stub);
+            if (!"nio".equals(TRANSPORT)) {
+                RemoteExamService stub = (RemoteExamService) UnicastRemoteObject.exportObject(exportedService, 0);
 
-            System.out.println("Exam Server started. RMI service bound to registry.");
+                // Create and start the RMI registry
+                registry = LocateRegistry.createRegistry(RMI_PORT);
+                registry.rebind(SERVICE_NAME, stub);
+                System.out.println("Exam Server started. RMI service bound to registry.");
+            }
+
+            if ("nio".equals(TRANSPORT) || "both".equals(TRANSPORT)) {
+                nioServer = new NioExamServer(exportedService, NIO_PORT);
+                nioServer.start();
+                examService.addMetricsSource(nioServer::reportMetrics);
+                System.out.println("Exam Server listening for NIO clients on port " + NIO_PORT + ".");
+            }
         } catch (Exception e) {
-            System.err.println("Error starting RMI service: " + e.getMessage());
+            System.err.println("Error starting exam service: " + e.getMessage());
             e.printStackTrace();
         }
     }
@@ -57,6 +85,17 @@ public class ExamServer extends Application {
                     System.out.println("No service to unbind or registry not available.");
                 }
             }
+
+            if (nioServer != null) {
+                nioServer.stop();
+            }
+
+            // Drain queued submissions before the connection pool goes away
+            if (service != null) {
+                service.shutdown();
+            }
+
+            ExamRepositories.shutdown();
         } catch (Exception e) {
             System.err.println("Error stopping server: " + e.getMessage());
             e.printStackTrace();
@@ -1,586 +1,1199 @@
 package server;
 
+import java.io.File;
+import java.io.IOException;
 import java.rmi.RemoteException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import shared.*;
 
 public class ExamServiceImpl implements RemoteExamService {
 
-    private final DatabaseManager dbManager;
-    private final ServerMainController controller;
+    private final ExamRepository repository;
+    // Swapped for each admin login; the service itself lives as long as the server
+    private volatile ActivityLog activityLog;
 
-    // Track active exam sessions
-    private final Map<String, ActiveExamSession> activeExams = new ConcurrentHashMap<>();
+    // Track active exam sessions, keyed by SessionTable.key(student index, exam id)
+    private final StudentIndex studentIndex = new StudentIndex();
+    private final SessionTable<ActiveExamSession> activeExams = new SessionTable<>();
 
-    public ExamServiceImpl(ServerMainController controller) {
-        this.dbManager = new DatabaseManager();
-        this.controller = controller;
+    // Who has submitted what, so retake and duplicate-submit checks stay in memory
+    private final SubmittedSet submitted = new SubmittedSet();
+    private final AtomicLong duplicateSubmissions = new AtomicLong();
+
+    // Sessions are leased: clients heartbeat, and a session whose lease lapses is reaped and
+    // handled by the expiry policy
+    public enum ExpiryPolicy {
+        AUTO_SUBMIT, ABANDON
+    }
+    private static final long LEASE_MILLIS = Long.getLong("exam.leaseSeconds", 120) * 1000;
+    private final ExpiryPolicy expiryPolicy;
+    private final LeaseWheel<ActiveExamSession> leases = new LeaseWheel<>("session-lease-reaper",
+            1000, 512, ActiveExamSession::getLeaseExpiresAt, this::leaseExpired, this::log);
+    private final AtomicLong heartbeats = new AtomicLong();
+    private final AtomicLong leasesAutoSubmitted = new AtomicLong();
+    private final AtomicLong leasesAbandoned = new AtomicLong();
+
+    // Whatever the client does, a session still open at its deadline plus the grace is
+    // finalized with its checkpointed answers. Submissions within the grace are accepted.
+    private static final long SUBMIT_GRACE_MILLIS = Long.getLong("exam.submitGraceSeconds", 120) * 1000;
+    private final LeaseWheel<ActiveExamSession> deadlines = new LeaseWheel<>("session-deadline-scheduler",
+            1000, 512, ActiveExamSession::getFinalizeAt, this::deadlineReached, this::log);
+    private final AtomicLong deadlinesAutoSubmitted = new AtomicLong();
+    // Sessions the server submitted itself, so a client submit arriving afterwards is told so
+    private final SubmittedSet autoSubmitted = new SubmittedSet();
+    private final AtomicLong lateSubmissionsRejected = new AtomicLong();
+    private static final String TIME_RAN_OUT =
+            "Your time for this exam ran out; the answers saved before then were submitted";
+
+    // Immutable exam content shared by every student taking the same exam
+    private static final int MAX_CACHED_EXAMS = 64;
+    private final ExamCache examCache = new ExamCache(MAX_CACHED_EXAMS);
+
+    // Repository reads issued while starting exams, reported as reads per start
+    private final AtomicLong examStarts = new AtomicLong();
+    private final AtomicLong examStartQueries = new AtomicLong();
+    private final AtomicLong payloadBytesServed = new AtomicLong();
+
+    // Students may download an exam's encrypted package this long before its start time
+    private static final long PREFETCH_WINDOW_MILLIS =
+            Long.getLong("exam.prefetchWindowMinutes", 30) * 60 * 1000;
+    private final PackageKeys packageKeys;
+    private final AtomicLong packagesServed = new AtomicLong();
+    private final AtomicLong packageBytesServed = new AtomicLong();
+    private final AtomicLong keysReleased = new AtomicLong();
+    private final AtomicLong keyVersionMismatches = new AtomicLong();
+
+    // Metrics from layers wrapped around this service, such as admission control
+    private final List<Consumer<Map<String, String>>> metricsSources = new CopyOnWriteArrayList<>();
+
+    // Mid-exam answer checkpoints
+    private final AtomicLong progressSaves = new AtomicLong();
+    private final AtomicLong progressAnswersSaved = new AtomicLong();
+
+    // Bumped whenever the list of available exams may have changed. Seeded from the clock
+    // so a client's version from before a server restart can never match by accident.
+    private final AtomicLong catalogVersion = new AtomicLong(System.currentTimeMillis());
+    private volatile ExamCatalog cachedCatalog;
+    private final AtomicLong catalogLoads = new AtomicLong();
+    private final AtomicLong catalogFull = new AtomicLong();
+    private final AtomicLong catalogNotModified = new AtomicLong();
+
+    // Upper bound on a single results page, whatever the caller asks for
+    private static final int MAX_RESULT_PAGE_SIZE = 500;
+
+    // Accepted submissions are journaled locally and written to the database in the background
+    private static final String DATA_DIR = System.getProperty("exam.dataDir", "exam-data");
+    private final SubmissionPipeline submissionPipeline;
+
+    // Sessions in progress are journaled too, and restored when the server starts again
+    private final SessionJournal sessionJournal;
+    private final AtomicLong sessionJournalFailures = new AtomicLong();
+    private int sessionsRestored;
+    private int sessionsDiscarded;
+    private long sessionRecoveryMillis;
+    // Sessions whose exam could not be loaded at startup, retried on the student's next start and on a timer
+    private static final long RESTORE_RETRY_MILLIS = 30 * 1000;
+    private final Map<Long, SessionJournal.Entry> deferredSessions = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService restoreRetry;
+
+    public ExamServiceImpl(ActivityLog activityLog) {
+        this(activityLog, ExamRepositories.getDefault());
     }
 
-    @Override
-    public boolean authenticateUser(String username, String password, boolean isTeacher) throws RemoteException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+    // activityLog may be null when running headless (benchmarks, CI)
+    public ExamServiceImpl(ActivityLog activityLog, ExamRepository repository) {
+        this.repository = repository;
+        this.activityLog = activityLog;
+        this.expiryPolicy = readExpiryPolicy();
+
+        try {
+            this.submissionPipeline = new SubmissionPipeline(new File(DATA_DIR), repository::saveSubmissions,
+                    this::submissionDeadLettered);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open submission journal", e);
+        }
+
+        SessionJournal journal = null;
+        try {
+            try {
+                this.packageKeys = new PackageKeys(new File(DATA_DIR));
+            } catch (IOException e) {
+                throw new RuntimeException("Could not load the exam package secret", e);
+            }
+
+            warmSubmittedSet();
+            submissionPipeline.start();
+
+            if (submissionPipeline.getReplayedCount() > 0) {
+                log("Replaying " + submissionPipeline.getReplayedCount()
+                        + " journaled submissions not yet saved to the database");
+            }
+
+            try {
+                journal = new SessionJournal(new File(DATA_DIR));
+                this.sessionJournal = journal;
+                restoreSessions();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not open session journal", e);
+            }
+        } catch (RuntimeException e) {
+            // Give up the journal and timer threads so a later attempt, such as the next login, can start cleanly
+            leases.shutdown();
+            deadlines.shutdown();
+            submissionPipeline.shutdown();
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException closeError) {
+                    log("Error closing session journal: " + closeError.getMessage());
+                }
+            }
+            throw e;
+        }
+    }
 
+    // A mistyped setting falls back to the default rather than keeping the server from starting
+    private ExpiryPolicy readExpiryPolicy() {
+        String configured = System.getProperty("exam.leaseExpiryPolicy", ExpiryPolicy.AUTO_SUBMIT.name());
         try {
-            conn = dbManager.getConnection();
-            String table = isTeacher ? "teachers" : "students";
-            String sql = "SELECT * FROM " + table + " WHERE username = ? AND password = ?";
+            return ExpiryPolicy.valueOf(configured.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log("WARNING: unknown exam.leaseExpiryPolicy '" + configured + "'; using "
+                    + ExpiryPolicy.AUTO_SUBMIT + " (expected one of " + Arrays.toString(ExpiryPolicy.values()) + ")");
+            return ExpiryPolicy.AUTO_SUBMIT;
+        }
+    }
+
+    // Puts back the sessions that were in progress when the server stopped. Their clocks kept
+    // running; one whose time ran out meanwhile is finalized on the scheduler's next tick.
+    private void restoreSessions() throws IOException {
+        long started = System.nanoTime();
+        List<SessionJournal.Entry> entries = sessionJournal.recover();
+        Map<Long, ExamSnapshot> pinnedSnapshots = new HashMap<>();
+
+        for (SessionJournal.Entry entry : entries) {
+            try {
+                if (restoreSession(entry, pinnedSnapshots) != null) {
+                    sessionsRestored++;
+                } else {
+                    sessionsDiscarded++;
+                }
+            } catch (SQLException | IOException e) {
+                // Still live in the journal, so a restart before a retry succeeds does not lose it either
+                deferredSessions.put(SessionTable.key(studentIndex.intern(entry.getStudentId()), entry.getExamId()),
+                        entry);
+                log("Could not restore the session of student " + entry.getStudentId() + " on exam "
+                        + entry.getExamId() + " yet: " + e.getMessage());
+            }
+        }
+
+        sessionRecoveryMillis = (System.nanoTime() - started) / 1000000;
+        if (!entries.isEmpty()) {
+            log("Restored " + sessionsRestored + " exam sessions from the session journal in "
+                    + sessionRecoveryMillis + " ms (" + sessionsDiscarded + " no longer valid, "
+                    + deferredSessions.size() + " deferred)");
+        }
+
+        if (!deferredSessions.isEmpty()) {
+            restoreRetry = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "session-restore-retry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            restoreRetry.scheduleWithFixedDelay(this::retryDeferredSessions,
+                    RESTORE_RETRY_MILLIS, RESTORE_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Registers a journaled session again against the exam version it was started on. Returns null,
+    // ending its journal entry, if it can no longer be resumed: submitted meanwhile or exam removed.
+    private ActiveExamSession restoreSession(SessionJournal.Entry entry, Map<Long, ExamSnapshot> pinnedSnapshots)
+            throws SQLException, IOException {
+        int index = studentIndex.intern(entry.getStudentId());
+        ExamSnapshot snapshot = submitted.contains(entry.getExamId(), index)
+                ? null
+                : snapshotStartedOn(entry, pinnedSnapshots);
+        if (snapshot == null || snapshot.getQuestionCount() != entry.getAnswers().length) {
+            sessionJournal.recordEnd(entry.getId());
+            return null;
+        }
 
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, username);
-            stmt.setString(2, password); // In a real app, use password hashing
+        ActiveExamSession session = new ActiveExamSession(SessionTable.key(index, entry.getExamId()),
+                snapshot, entry.getStudentId(), entry.getStartTime(), entry.getDurationMillis());
+        session.journalId = entry.getId();
+        session.getProgress().restore(entry.getAnswers());
+        session.renewLease(System.currentTimeMillis());
+        session.transition(SessionState.NOT_STARTED, SessionState.IN_PROGRESS);
+
+        // Only a deferred session can meet one here, if a start got in while it waited
+        if (activeExams.putIfAbsent(session.getKey(), session) != null) {
+            sessionJournal.recordEnd(entry.getId());
+            return null;
+        }
+        leases.add(session);
+        deadlines.add(session);
+        return session;
+    }
 
-            rs = stmt.executeQuery();
-            boolean authenticated = rs.next();
+    // The exam as the student was given it: the current version, or the copy the session journal
+    // pinned when the session started if the exam has been edited since; null if it is gone
+    private ExamSnapshot snapshotStartedOn(SessionJournal.Entry entry, Map<Long, ExamSnapshot> pinnedSnapshots)
+            throws SQLException, IOException {
+        ExamSnapshot current = examCache.get(entry.getExamId(), this::loadExamSnapshot);
+        if (current == null || current.getVersion() == entry.getExamVersion()) {
+            return current;
+        }
+
+        // Shared by every restored session of the same old version, as the cache shares current ones
+        long pinKey = ((long) entry.getExamId() << 32) | (entry.getExamVersion() & 0xFFFFFFFFL);
+        ExamSnapshot pinned = pinnedSnapshots.get(pinKey);
+        if (pinned == null) {
+            byte[] content = sessionJournal.readPinnedExam(entry.getExamId(), entry.getExamVersion());
+            if (content == null) {
+                return null;
+            }
+            pinned = new ExamSnapshot(ExamPayloadCodec.decode(content));
+            pinnedSnapshots.put(pinKey, pinned);
+        }
+        return pinned;
+    }
+
+    private void retryDeferredSessions() {
+        Map<Long, ExamSnapshot> pinnedSnapshots = new HashMap<>();
+        for (Map.Entry<Long, SessionJournal.Entry> deferred : deferredSessions.entrySet()) {
+            if (deferredSessions.remove(deferred.getKey(), deferred.getValue())) {
+                restoreDeferred(deferred.getKey(), deferred.getValue(), pinnedSnapshots);
+            }
+        }
+        if (deferredSessions.isEmpty()) {
+            restoreRetry.shutdown();
+        }
+    }
+
+    // The caller has claimed the entry by removing it; it goes back if its exam still cannot be loaded
+    private ActiveExamSession restoreDeferred(long sessionKey, SessionJournal.Entry entry,
+            Map<Long, ExamSnapshot> pinnedSnapshots) {
+        try {
+            ActiveExamSession session = restoreSession(entry, pinnedSnapshots);
+            log((session != null ? "Restored the deferred session of student " : "Dropped the deferred session of student ")
+                    + entry.getStudentId() + " on exam " + entry.getExamId());
+            return session;
+        } catch (SQLException | IOException | RuntimeException e) {
+            deferredSessions.putIfAbsent(sessionKey, entry);
+            return null;
+        }
+    }
+
+    // Everything stored in the database plus anything still waiting in the journal
+    private void warmSubmittedSet() {
+        try {
+            for (Map.Entry<Integer, List<String>> exam : repository.findSubmittedStudentIds().entrySet()) {
+                for (String studentId : exam.getValue()) {
+                    submitted.add(exam.getKey(), studentIndex.intern(studentId));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not load submitted results", e);
+        }
+        for (Submission submission : submissionPipeline.getReplayedSubmissions()) {
+            submitted.add(submission.getExamId(), studentIndex.intern(submission.getStudentId()));
+        }
+    }
+
+    // The database has no result for this submission, so the student is no longer marked as submitted
+    private void submissionDeadLettered(Submission submission, SQLException cause) {
+        int index = studentIndex.intern(submission.getStudentId());
+        submitted.remove(submission.getExamId(), index);
+        autoSubmitted.remove(submission.getExamId(), index);
+        log("Database rejected the submission of exam " + submission.getExamId() + " by student "
+                + submission.getStudentId() + " (" + cause.getMessage() + "); kept in "
+                + submissionPipeline.getDeadLetterFile() + " and the student may submit again");
+    }
+
+    private boolean hasSubmitted(int examId, String studentId) {
+        int index = studentIndex.find(studentId);
+        return index >= 0 && submitted.contains(examId, index);
+    }
+
+    public void shutdown() {
+        leases.shutdown();
+        deadlines.shutdown();
+        ScheduledExecutorService retry = restoreRetry;
+        if (retry != null) {
+            retry.shutdownNow();
+        }
+        submissionPipeline.shutdown();
+        try {
+            sessionJournal.close();
+        } catch (IOException e) {
+            log("Error closing session journal: " + e.getMessage());
+        }
+    }
+
+    public void setActivityLog(ActivityLog activityLog) {
+        this.activityLog = activityLog;
+    }
+
+    private void log(String message) {
+        ActivityLog current = activityLog;
+        if (current != null) {
+            current.logActivity(message);
+        } else {
+            System.out.println(message);
+        }
+    }
+
+    @Override
+    public boolean authenticateUser(String username, String password, boolean isTeacher) throws RemoteException {
+        try {
+            boolean authenticated = repository.authenticate(username, password, isTeacher);
 
             // Log the authentication attempt
-            controller.logActivity(username + " (" + (isTeacher ? "teacher" : "student")
+            log(username + " (" + (isTeacher ? "teacher" : "student")
                     + ") authentication " + (authenticated ? "successful" : "failed"));
 
             return authenticated;
         } catch (SQLException e) {
-            controller.logActivity("Authentication error: " + e.getMessage());
+            log("Authentication error: " + e.getMessage());
             throw new RemoteException("Authentication failed", e);
-        } finally {
-            dbManager.closeResources(conn, stmt, rs);
         }
     }
 
     @Override
     public List<Exam> getAvailableExams(String studentId) throws RemoteException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        List<Exam> exams = new ArrayList<>();
+        List<Exam> exams = loadCatalog().getExams();
 
-        try {
-            conn = dbManager.getConnection();
-            String sql = "SELECT * FROM exams WHERE active = 1";
-
-            stmt = conn.prepareStatement(sql);
-            rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                Exam exam = new Exam(
-                        rs.getInt("id"),
-                        rs.getString("title"),
-                        rs.getString("description"),
-                        rs.getInt("duration_minutes"),
-                        rs.getBoolean("results_visible")
-                );
-                exams.add(exam);
-            }
+        log("Student " + studentId + " retrieved available exams");
+        return exams;
+    }
+
+    @Override
+    public ExamCatalog getAvailableExams(String studentId, long knownVersion) throws RemoteException {
+        if (knownVersion == catalogVersion.get()) {
+            catalogNotModified.incrementAndGet();
+            return ExamCatalog.notModified(knownVersion);
+        }
 
-            controller.logActivity("Student " + studentId + " retrieved available exams");
-            return exams;
+        catalogFull.incrementAndGet();
+        log("Student " + studentId + " retrieved available exams");
+        return loadCatalog();
+    }
+
+    // Serves the active exam list from memory until a teacher changes an exam
+    private ExamCatalog loadCatalog() throws RemoteException {
+        ExamCatalog catalog = cachedCatalog;
+        long version = catalogVersion.get();
+        if (catalog != null && catalog.getVersion() == version) {
+            return catalog;
+        }
+
+        try {
+            // Tagged with the version read before the query, so an edit committed meanwhile forces another reload
+            catalog = new ExamCatalog(version, Collections.unmodifiableList(repository.findActiveExams()));
+            catalogLoads.incrementAndGet();
+            cachedCatalog = catalog;
+            return catalog;
         } catch (SQLException e) {
-            controller.logActivity("Error retrieving exams: " + e.getMessage());
+            log("Error retrieving exams: " + e.getMessage());
             throw new RemoteException("Failed to retrieve exams", e);
-        } finally {
-            dbManager.closeResources(conn, stmt, rs);
         }
     }
 
+    // Called after every committed change to an exam's listing
+    private void catalogChanged() {
+        catalogVersion.incrementAndGet();
+    }
+
     @Override
     public Exam getExamQuestions(int examId, String studentId) throws RemoteException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+        return startExamSession(examId, studentId).toExam();
+    }
 
+    @Override
+    public byte[] getExamPayload(int examId, String studentId) throws RemoteException {
         try {
-            // First check if the student has already taken this exam
-            conn = dbManager.getConnection();
-            String checkSql = "SELECT * FROM exam_results WHERE exam_id = ? AND student_id = ?";
-            stmt = conn.prepareStatement(checkSql);
-            stmt.setInt(1, examId);
-            stmt.setString(2, studentId);
-            rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                controller.logActivity("Student " + studentId + " attempted to retake exam " + examId);
+            // Every student starting this exam version receives the same encoded buffer
+            byte[] payload = startExamSession(examId, studentId).getPayload();
+            payloadBytesServed.addAndGet(payload.length);
+            return payload;
+        } catch (RemoteException e) {
+            throw e; // already meant for the student, not an encoding failure
+        } catch (IOException e) {
+            log("Error encoding exam payload: " + e.getMessage());
+            throw new RemoteException("Failed to encode exam", e);
+        }
+    }
+
+    @Override
+    public byte[] getExamPackage(int examId, String studentId) throws RemoteException {
+        try {
+            if (hasSubmitted(examId, studentId)) {
                 throw new RemoteException("You have already taken this exam");
             }
 
-            // Close previous resources
-            dbManager.closeResources(null, stmt, rs);
+            ExamSnapshot snapshot = examCache.get(examId, this::loadExamSnapshot);
+            if (snapshot == null) {
+                throw new RemoteException("Exam not found");
+            }
 
-            // Get the exam details
-            String examSql = "SELECT * FROM exams WHERE id = ?";
-            stmt = conn.prepareStatement(examSql);
-            stmt.setInt(1, examId);
-            rs = stmt.executeQuery();
+            long availableFrom = snapshot.getStartTime() - PREFETCH_WINDOW_MILLIS;
+            if (snapshot.getStartTime() != 0 && System.currentTimeMillis() < availableFrom) {
+                throw new RemoteException("The exam package can be downloaded from " + new Date(availableFrom));
+            }
 
-            if (!rs.next()) {
-                throw new RemoteException("Exam not found");
+            byte[] sealed = snapshot.getSealedPackage(packageKeys.keyFor(examId, snapshot.getVersion()));
+            packagesServed.incrementAndGet();
+            packageBytesServed.addAndGet(sealed.length);
+            log("Student " + studentId + " prefetched exam " + examId);
+            return sealed;
+        } catch (SQLException e) {
+            log("Error retrieving exam package: " + e.getMessage());
+            throw new RemoteException("Failed to retrieve exam package", e);
+        } catch (RemoteException e) {
+            throw e;
+        } catch (IOException e) {
+            log("Error sealing exam package: " + e.getMessage());
+            throw new RemoteException("Failed to encode exam package", e);
+        }
+    }
+
+    @Override
+    public byte[] releaseExamKey(int examId, String studentId, int examVersion) throws RemoteException {
+        // Same checks and session as any other start; only the key crosses the wire
+        ExamSnapshot snapshot = startExamSession(examId, studentId);
+
+        if (snapshot.getVersion() != examVersion) {
+            // Edited since the student prefetched; they fall back to downloading the payload
+            keyVersionMismatches.incrementAndGet();
+            return null;
+        }
+
+        keysReleased.incrementAndGet();
+        return packageKeys.keyFor(examId, examVersion);
+    }
+
+    // Runs the retake and start time checks and registers the session; shared by all start methods
+    private ExamSnapshot startExamSession(int examId, String studentId) throws RemoteException {
+        try {
+            // First check if the student has already taken this exam
+            int index = studentIndex.intern(studentId);
+            if (submitted.contains(examId, index)) {
+                log("Student " + studentId + " attempted to retake exam " + examId);
+                throw new RemoteException("You have already taken this exam");
             }
 
-            Exam exam = new Exam(
-                    rs.getInt("id"),
-                    rs.getString("title"),
-                    rs.getString("description"),
-                    rs.getInt("duration_minutes"),
-                    rs.getBoolean("results_visible")
-            );
+            // Reopening an unfinished exam resumes the same session and exam version
+            long sessionKey = SessionTable.key(index, examId);
+            ActiveExamSession existing = activeExams.get(sessionKey);
+            if (existing != null && existing.getState() != SessionState.SUBMITTED
+                    && existing.getState() != SessionState.EXPIRED) {
+                return resumeSession(existing);
+            }
+
+            // Restored rather than replaced, so the answers checkpointed before the restart are kept
+            SessionJournal.Entry deferred = deferredSessions.remove(sessionKey);
+            if (deferred != null) {
+                ActiveExamSession restored = restoreDeferred(sessionKey, deferred, new HashMap<>());
+                if (restored != null) {
+                    return resumeSession(restored);
+                }
+                if (deferredSessions.containsKey(sessionKey)) {
+                    throw new RemoteException("Your exam session from before the server restarted cannot be "
+                            + "restored yet; please try again shortly");
+                }
+            }
+
+            // Counted after the resume check so resumes do not dilute queries per start
+            examStarts.incrementAndGet();
+
+            ExamSnapshot snapshot = examCache.get(examId, this::loadExamSnapshot);
 
-            // Close previous resources
-            dbManager.closeResources(null, stmt, rs);
-
-            // Get the questions for this exam
-            String questionsSql = "SELECT q.* FROM questions q "
-                    + "JOIN exam_questions eq ON q.id = eq.question_id "
-                    + "WHERE eq.exam_id = ?";
-            stmt = conn.prepareStatement(questionsSql);
-            stmt.setInt(1, examId);
-            rs = stmt.executeQuery();
-
-            List<Question> questions = new ArrayList<>();
-            while (rs.next()) {
-                int questionId = rs.getInt("id");
-                Question question = new Question(
-                        questionId,
-                        rs.getString("text"),
-                        getOptionsForQuestion(questionId),
-                        rs.getInt("correct_option"),
-                        rs.getInt("points")
-                );
-                questions.add(question);
+            if (snapshot == null) {
+                throw new RemoteException("Exam not found");
             }
 
-            exam.setQuestions(questions);
+            if (snapshot.getStartTime() > System.currentTimeMillis()) {
+                throw new RemoteException("This exam opens at " + new Date(snapshot.getStartTime()));
+            }
 
             // Create an active exam session
             ActiveExamSession session = new ActiveExamSession(
-                    examId,
+                    sessionKey,
+                    snapshot,
                     studentId,
                     System.currentTimeMillis(),
-                    exam.getDurationMinutes() * 60 * 1000
+                    snapshot.getDurationMinutes() * 60 * 1000
             );
-            activeExams.put(studentId + "-" + examId, session);
+            session.renewLease(session.getStartTime());
+
+            // Only one concurrent start can register; the others resume the winner's session
+            ActiveExamSession raced = activeExams.putIfAbsent(sessionKey, session);
+            if (raced != null) {
+                if (raced.getState() == SessionState.SUBMITTED || raced.getState() == SessionState.EXPIRED) {
+                    throw new RemoteException(submitted.contains(examId, index)
+                            ? "You have already taken this exam"
+                            : "Your previous session for this exam is still closing; please try again");
+                }
+                return resumeSession(raced);
+            }
 
-            controller.logActivity("Student " + studentId + " started exam " + examId);
-            return exam;
+            // Journaled before it can be saved to or submitted, so its END never precedes its START
+            journalStart(session);
+
+            // A submit that finished between the first check and the registration wins
+            if (submitted.contains(examId, index)) {
+                session.transition(SessionState.NOT_STARTED, SessionState.EXPIRED);
+                activeExams.remove(sessionKey, session);
+                journalEnd(session);
+                throw new RemoteException("You have already taken this exam");
+            }
+            session.transition(SessionState.NOT_STARTED, SessionState.IN_PROGRESS);
+            leases.add(session);
+            deadlines.add(session);
+
+            log("Student " + studentId + " started exam " + examId);
+            return snapshot;
         } catch (SQLException e) {
-            controller.logActivity("Error retrieving exam questions: " + e.getMessage());
+            log("Error retrieving exam questions: " + e.getMessage());
             throw new RemoteException("Failed to retrieve exam questions", e);
-        } finally {
-            dbManager.closeResources(conn, stmt, rs);
         }
     }
 
-    private List<String> getOptionsForQuestion(int questionId) throws SQLException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        List<String> options = new ArrayList<>();
+    // An unfinished session carries on with its exam version; its time is not reset
+    private ExamSnapshot resumeSession(ActiveExamSession session) throws RemoteException {
+        long now = System.currentTimeMillis();
+        if (now > session.getDeadline()) {
+            throw new RemoteException("Your time for this exam has run out");
+        }
+        session.renewLease(now);
+        log("Student " + session.getStudentId() + " resumed exam " + session.getExamId());
+        return session.getSnapshot();
+    }
 
-        try {
-            conn = dbManager.getConnection();
-            String sql = "SELECT * FROM question_options WHERE question_id = ? ORDER BY option_order";
+    private ExamSnapshot loadExamSnapshot(int examId) throws SQLException {
+        Exam exam = repository.findExamWithQuestions(examId);
+        examStartQueries.incrementAndGet(); // content query, only paid on a cache miss
+        return exam != null ? new ExamSnapshot(exam) : null;
+    }
 
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, questionId);
-            rs = stmt.executeQuery();
+    @Override
+    public boolean submitExam(int examId, String studentId, List<Answer> answers) throws RemoteException {
+        long currentTime = System.currentTimeMillis();
+        ActiveExamSession session = requireSession(examId, studentId, currentTime);
+        if (session == null) {
+            return true;
+        }
+        ExamSnapshot snapshot = session.getSnapshot();
+
+        // Grade against the answer key of the version the student was given
+        int score = 0;
+        int[] questionIds = new int[answers.size()];
+        int[] selectedOptions = new int[answers.size()];
 
-            while (rs.next()) {
-                options.add(rs.getString("option_text"));
+        for (int i = 0; i < answers.size(); i++) {
+            Answer answer = answers.get(i);
+            questionIds[i] = answer.getQuestionId();
+            selectedOptions[i] = answer.getSelectedOptionIndex();
+
+            ExamSnapshot.QuestionSnapshot question = snapshot.getQuestion(answer.getQuestionId());
+            if (question != null && question.getCorrectOptionIndex() == answer.getSelectedOptionIndex()) {
+                score += question.getPoints();
             }
+        }
 
-            return options;
-        } finally {
-            dbManager.closeResources(conn, stmt, rs);
+        return acceptSubmission(session, score, questionIds, selectedOptions, currentTime);
+    }
+
+    @Override
+    public boolean submitExamPacked(int examId, String studentId, int examVersion, int[] selectedOptions)
+            throws RemoteException {
+        long currentTime = System.currentTimeMillis();
+        ActiveExamSession session = requireSession(examId, studentId, currentTime);
+        if (session == null) {
+            return true;
+        }
+        ExamSnapshot snapshot = session.getSnapshot();
+
+        // The array is only meaningful against the exact question order the student received
+        if (examVersion != snapshot.getVersion() || selectedOptions == null
+                || selectedOptions.length != snapshot.getQuestionCount()) {
+            log("Rejected packed submission from " + studentId + " for exam " + examId
+                    + ": version " + examVersion + " does not match " + snapshot.getVersion());
+            throw new RemoteException("Submitted answers do not match the exam version that was started");
         }
+
+        int score = snapshot.grade(selectedOptions);
+        return acceptSubmission(session, score, snapshot.getQuestionIds(), selectedOptions, currentTime);
     }
 
     @Override
-    public boolean submitExam(int examId, String studentId, List<Answer> answers) throws RemoteException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+    public void saveProgress(int examId, String studentId, int examVersion,
+            int[] questionIndexes, int[] selectedOptions) throws RemoteException {
+        ActiveExamSession session = findSession(examId, studentId);
+        if (session == null || session.getState() != SessionState.IN_PROGRESS) {
+            throw new RemoteException("No active exam session found");
+        }
+        if (examVersion != session.getSnapshot().getVersion()) {
+            throw new RemoteException("Saved answers do not match the exam version that was started");
+        }
+
+        session.renewLease(System.currentTimeMillis());
+        // Journaled under the log's lock so the journal sees checkpoints in the same order
+        synchronized (session.getProgress()) {
+            try {
+                session.getProgress().append(questionIndexes, selectedOptions);
+            } catch (IllegalArgumentException e) {
+                throw new RemoteException("Invalid progress checkpoint: " + e.getMessage());
+            }
+            journalProgress(session, questionIndexes, selectedOptions);
+        }
+        progressSaves.incrementAndGet();
+        progressAnswersSaved.addAndGet(questionIndexes.length);
+    }
 
+    @Override
+    public int[] getSavedProgress(int examId, String studentId, int examVersion) throws RemoteException {
+        ActiveExamSession session = findSession(examId, studentId);
+        if (session == null || session.getState() != SessionState.IN_PROGRESS
+                || examVersion != session.getSnapshot().getVersion()) {
+            return null;
+        }
+        return session.getProgress().toAnswers();
+    }
+
+    @Override
+    public boolean heartbeat(int examId, String studentId) throws RemoteException {
+        ActiveExamSession session = findSession(examId, studentId);
+        long now = System.currentTimeMillis();
+
+        // A lapsed lease is left for the reaper rather than revived
+        if (session == null || session.getState() != SessionState.IN_PROGRESS
+                || now > session.getLeaseExpiresAt()) {
+            return false;
+        }
+        session.renewLease(now);
+        heartbeats.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public long getTimeRemaining(int examId, String studentId) throws RemoteException {
+        ActiveExamSession session = findSession(examId, studentId);
+        if (session == null || session.getState() != SessionState.IN_PROGRESS) {
+            return -1;
+        }
+        // The client counts down from this on its own monotonic clock, so its wall clock never matters
+        return Math.max(0, session.getDeadline() - System.currentTimeMillis());
+    }
+
+    // Called by the lease wheel; a session that was submitted in the meantime is ignored
+    private void leaseExpired(ActiveExamSession session) {
+        if (!session.transition(SessionState.IN_PROGRESS, SessionState.EXPIRED)) {
+            return;
+        }
+
+        if (expiryPolicy == ExpiryPolicy.ABANDON) {
+            activeExams.remove(session.getKey(), session);
+            journalEnd(session);
+            leasesAbandoned.incrementAndGet();
+            log("Lease expired for student " + session.getStudentId() + " on exam "
+                    + session.getExamId() + "; session abandoned");
+            return;
+        }
+
+        if (autoSubmit(session, "lease expired")) {
+            leasesAutoSubmitted.incrementAndGet();
+        } else {
+            // Keep the session and try again once another lease period has passed
+            session.leaseExpiresAt = System.currentTimeMillis() + LEASE_MILLIS;
+            session.transition(SessionState.EXPIRED, SessionState.IN_PROGRESS);
+            leases.add(session);
+        }
+    }
+
+    // Called by the deadline scheduler at the deadline plus the grace, whatever the lease says
+    private void deadlineReached(ActiveExamSession session) {
+        if (!session.transition(SessionState.IN_PROGRESS, SessionState.EXPIRED)) {
+            return;
+        }
+
+        if (autoSubmit(session, "time ran out")) {
+            deadlinesAutoSubmitted.incrementAndGet();
+        } else {
+            session.finalizeAt = System.currentTimeMillis() + LEASE_MILLIS;
+            session.transition(SessionState.EXPIRED, SessionState.IN_PROGRESS);
+            deadlines.add(session);
+        }
+    }
+
+    // Grades the checkpointed answers exactly as a packed submission, for a session already moved
+    // to EXPIRED; false if the submission could not be journaled and the session must be retried
+    private boolean autoSubmit(ActiveExamSession session, String reason) {
+        long sessionKey = session.getKey();
+        if (!submitted.add(session.getExamId(), studentIndexOf(sessionKey))) {
+            activeExams.remove(sessionKey, session);
+            journalEnd(session);
+            return true;
+        }
+
+        ExamSnapshot snapshot = session.getSnapshot();
+        int[] answers = session.getProgress().toAnswers();
+        int score = snapshot.grade(answers);
         try {
-            // Check if the exam is still active and within time limit
-            String sessionKey = studentId + "-" + examId;
-            ActiveExamSession session = activeExams.get(sessionKey);
+            submissionPipeline.submit(new Submission(0, session.getExamId(), session.getStudentId(), score,
+                    snapshot.getTotalPoints(), System.currentTimeMillis(), snapshot.getQuestionIds(), answers));
+        } catch (IOException e) {
+            submitted.remove(session.getExamId(), studentIndexOf(sessionKey));
+            log("Error auto-submitting exam " + session.getExamId() + " for student "
+                    + session.getStudentId() + ": " + e.getMessage());
+            return false;
+        }
+        autoSubmitted.add(session.getExamId(), studentIndexOf(sessionKey));
+        activeExams.remove(sessionKey, session);
+        journalEnd(session);
 
-            if (session == null) {
-                throw new RemoteException("No active exam session found");
+        log("Student " + session.getStudentId() + " on exam " + session.getExamId() + ": " + reason
+                + "; auto-submitted checkpointed answers with score " + score + "/" + snapshot.getTotalPoints());
+        return true;
+    }
+
+    // Sessions with their leases, for the admin UI
+    public List<ActiveSessionInfo> getActiveSessions() {
+        List<ActiveSessionInfo> sessions = new ArrayList<>(activeExams.size());
+        activeExams.forEach(session -> {
+            if (session.getState() == SessionState.IN_PROGRESS) {
+                sessions.add(new ActiveSessionInfo(session.getStudentId(),
+                        session.getExamId(), session.getSnapshot().getTitle(), session.getStartTime(),
+                        session.getDeadline(),
+                        session.getLastHeartbeat(), session.getLeaseExpiresAt()));
             }
+        });
+        return sessions;
+    }
 
-            long currentTime = System.currentTimeMillis();
-            long endTime = session.getStartTime() + session.getDurationMillis();
+    // A journal failure only costs this session its crash safety, never the student's request
+    private void journalStart(ActiveExamSession session) {
+        ExamSnapshot snapshot = session.getSnapshot();
+        try {
+            session.journalId = sessionJournal.recordStart(snapshot.getExamId(), snapshot.getVersion(),
+                    session.getStudentId(), session.getStartTime(), session.getDurationMillis(),
+                    snapshot.getQuestionCount(), snapshot.getPayload());
+        } catch (IOException e) {
+            sessionJournalFailures.incrementAndGet();
+            log("Error journaling exam session: " + e.getMessage());
+        }
+    }
 
-            if (currentTime > endTime) {
-                controller.logActivity("Student " + studentId + " submitted exam " + examId + " after time expired");
-                // We'll still accept it but log that it was late
-            }
+    private void journalProgress(ActiveExamSession session, int[] questionIndexes, int[] selectedOptions) {
+        if (session.journalId < 0) {
+            return;
+        }
+        try {
+            sessionJournal.recordProgress(session.journalId, questionIndexes, selectedOptions);
+        } catch (IOException e) {
+            sessionJournalFailures.incrementAndGet();
+            log("Error journaling exam progress: " + e.getMessage());
+        }
+    }
 
-            // Calculate the score
-            conn = dbManager.getConnection();
-            int score = 0;
-            int totalPossible = 0;
-
-            Map<Integer, Integer> questionPoints = new HashMap<>();
-            Map<Integer, Integer> correctAnswers = new HashMap<>();
-
-            // Get all questions and their correct answers
-            String questionsSql = "SELECT id, correct_option, points FROM questions "
-                    + "WHERE id IN (SELECT question_id FROM exam_questions WHERE exam_id = ?)";
-            stmt = conn.prepareStatement(questionsSql);
-            stmt.setInt(1, examId);
-            rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                int questionId = rs.getInt("id");
-                int correctOption = rs.getInt("correct_option");
-                int points = rs.getInt("points");
-
-                questionPoints.put(questionId, points);
-                correctAnswers.put(questionId, correctOption);
-                totalPossible += points;
-            }
+    private void journalEnd(ActiveExamSession session) {
+        if (session.journalId < 0) {
+            return;
+        }
+        try {
+            sessionJournal.recordEnd(session.journalId);
+        } catch (IOException e) {
+            sessionJournalFailures.incrementAndGet();
+            log("Error journaling end of exam session: " + e.getMessage());
+        }
+    }
 
-            // Calculate score based on answers
-            for (Answer answer : answers) {
-                int questionId = answer.getQuestionId();
-                int selectedOption = answer.getSelectedOptionIndex();
+    private static int studentIndexOf(long sessionKey) {
+        return (int) (sessionKey >>> 32);
+    }
 
-                if (correctAnswers.containsKey(questionId)
-                        && correctAnswers.get(questionId) == selectedOption) {
-                    score += questionPoints.get(questionId);
-                }
-            }
+    // Lookup without allocating; a student who never started an exam has no index and no session
+    private ActiveExamSession findSession(int examId, String studentId) {
+        int index = studentIndex.find(studentId);
+        return index >= 0 ? activeExams.get(SessionTable.key(index, examId)) : null;
+    }
 
-            // Save the result to the database
-            dbManager.closeResources(null, stmt, rs);
-
-            String resultSql = "INSERT INTO exam_results (exam_id, student_id, score, total_possible, submission_time) "
-                    + "VALUES (?, ?, ?, ?, NOW())";
-            stmt = conn.prepareStatement(resultSql);
-            stmt.setInt(1, examId);
-            stmt.setString(2, studentId);
-            stmt.setInt(3, score);
-            stmt.setInt(4, totalPossible);
-            stmt.executeUpdate();
-
-            // Save individual answers
-            dbManager.closeResources(null, stmt, null);
-
-            String answerSql = "INSERT INTO student_answers (exam_id, student_id, question_id, selected_option) "
-                    + "VALUES (?, ?, ?, ?)";
-            stmt = conn.prepareStatement(answerSql);
-
-            for (Answer answer : answers) {
-                stmt.setInt(1, examId);
-                stmt.setString(2, studentId);
-                stmt.setInt(3, answer.getQuestionId());
-                stmt.setInt(4, answer.getSelectedOptionIndex());
-                stmt.addBatch();
+    // Returns null for a retried submit whose first attempt was accepted (the reply was lost),
+    // which then succeeds again without effect
+    private ActiveExamSession requireSession(int examId, String studentId, long currentTime)
+            throws RemoteException {
+        // Check if the exam is still active and within time limit
+        ActiveExamSession session = findSession(examId, studentId);
+
+        if (session == null) {
+            // A submit marks the student before removing the session, so this cannot miss one
+            int index = studentIndex.find(studentId);
+            if (index >= 0 && autoSubmitted.contains(examId, index)) {
+                lateSubmissionsRejected.incrementAndGet();
+                throw new RemoteException(TIME_RAN_OUT);
             }
+            if (hasSubmitted(examId, studentId)) {
+                duplicateSubmissions.incrementAndGet();
+                log("Ignored duplicate submission of exam " + examId + " by student " + studentId);
+                return null;
+            }
+            throw new RemoteException("No active exam session found");
+        }
 
-            stmt.executeBatch();
-
-            // Remove the active session
-            activeExams.remove(sessionKey);
+        long endTime = session.getDeadline();
 
-            controller.logActivity("Student " + studentId + " submitted exam " + examId
-                    + " with score " + score + "/" + totalPossible);
+        // Past the grace the checkpointed answers stand; finalize now rather than wait for the tick
+        if (currentTime > endTime + SUBMIT_GRACE_MILLIS) {
+            lateSubmissionsRejected.incrementAndGet();
+            log("Rejected submission of exam " + examId + " by student " + studentId + " after time expired");
+            deadlineReached(session);
+            throw new RemoteException(TIME_RAN_OUT);
+        }
+        if (currentTime > endTime) {
+            log("Student " + studentId + " submitted exam " + examId + " after time expired (within grace)");
+        }
+        return session;
+    }
 
+    private boolean acceptSubmission(ActiveExamSession session, int score, int[] questionIds,
+            int[] selectedOptions, long currentTime) throws RemoteException {
+        int examId = session.getExamId();
+        String studentId = session.getStudentId();
+        int totalPoints = session.getSnapshot().getTotalPoints();
+        long sessionKey = session.getKey();
+
+        // Claim the session first so a concurrent submit or lease expiry cannot also grade it
+        if (!session.transition(SessionState.IN_PROGRESS, SessionState.SUBMITTED)) {
+            if (session.getState() == SessionState.SUBMITTED) {
+                duplicateSubmissions.incrementAndGet();
+                log("Ignored duplicate submission of exam " + examId + " by student " + studentId);
+                return true;
+            }
+            throw new RemoteException("This exam session has ended");
+        }
+        // Marked before the session leaves the table, so a concurrent start always sees one or the other
+        if (!submitted.add(examId, studentIndexOf(sessionKey))) {
+            activeExams.remove(sessionKey, session);
+            journalEnd(session);
             return true;
-        } catch (SQLException e) {
-            controller.logActivity("Error submitting exam: " + e.getMessage());
+        }
+
+        try {
+            // Acknowledge once the submission is durable in the journal; the database write follows
+            submissionPipeline.submit(new Submission(0, examId, studentId, score, totalPoints,
+                    currentTime, questionIds, selectedOptions));
+        } catch (IOException e) {
+            log("Error journaling submission: " + e.getMessage());
+            submitted.remove(examId, studentIndexOf(sessionKey));
+            session.transition(SessionState.SUBMITTED, SessionState.IN_PROGRESS);
             throw new RemoteException("Failed to submit exam", e);
-        } finally {
-            dbManager.closeResources(conn, stmt, rs);
         }
+        activeExams.remove(sessionKey, session);
+        journalEnd(session);
+
+        log("Student " + studentId + " submitted exam " + examId
+                + " with score " + score + "/" + totalPoints);
+
+        return true;
     }
 
     @Override
     public ExamResult getExamResult(int examId, String studentId) throws RemoteException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            conn = dbManager.getConnection();
-
             // First check if results are visible for this exam
-            String examSql = "SELECT results_visible FROM exams WHERE id = ?";
-            stmt = conn.prepareStatement(examSql);
-            stmt.setInt(1, examId);
-            rs = stmt.executeQuery();
+            Exam exam = repository.findExam(examId);
 
-            if (!rs.next()) {
+            if (exam == null) {
                 throw new RemoteException("Exam not found");
             }
 
-            boolean resultsVisible = rs.getBoolean("results_visible");
-
-            if (!resultsVisible) {
-                controller.logActivity("Student " + studentId + " attempted to view results for exam "
+            if (!exam.isResultsVisible()) {
+                log("Student " + studentId + " attempted to view results for exam "
                         + examId + " but results are not visible");
                 throw new RemoteException("Results are not available for viewing yet");
             }
 
-            // Close previous resources
-            dbManager.closeResources(null, stmt, rs);
-
             // Get the exam result
-            String resultSql = "SELECT er.*, s.name as student_name "
-                    + "FROM exam_results er "
-                    + "JOIN students s ON er.student_id = s.id "
-                    + "WHERE er.exam_id = ? AND er.student_id = ?";
-            stmt = conn.prepareStatement(resultSql);
-            stmt.setInt(1, examId);
-            stmt.setString(2, studentId);
-            rs = stmt.executeQuery();
-
-            if (!rs.next()) {
+            ExamResult result = repository.findResult(examId, studentId);
+
+            if (result == null) {
                 throw new RemoteException("No result found for this exam");
             }
 
-            ExamResult result = new ExamResult(
-                    rs.getInt("id"),
-                    rs.getInt("exam_id"),
-                    rs.getString("student_id"),
-                    rs.getString("student_name"),
-                    rs.getInt("score"),
-                    rs.getInt("total_possible"),
-                    rs.getTimestamp("submission_time")
-            );
-
-            controller.logActivity("Student " + studentId + " viewed results for exam " + examId);
+            log("Student " + studentId + " viewed results for exam " + examId);
             return result;
         } catch (SQLException e) {
-            controller.logActivity("Error retrieving exam result: " + e.getMessage());
+            log("Error retrieving exam result: " + e.getMessage());
             throw new RemoteException("Failed to retrieve exam result", e);
-        } finally {
-            dbManager.closeResources(conn, stmt, rs);
         }
     }
 
     @Override
     public boolean createExam(Exam exam) throws RemoteException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            conn = dbManager.getConnection();
-            conn.setAutoCommit(false);
-
-            // Insert the exam
-            String examSql = "INSERT INTO exams (title, description, duration_minutes, results_visible, active) "
-                    + "VALUES (?, ?, ?, ?, 1)";
-            stmt = conn.prepareStatement(examSql, PreparedStatement.RETURN_GENERATED_KEYS);
-            stmt.setString(1, exam.getTitle());
-            stmt.setString(2, exam.getDescription());
-            stmt.setInt(3, exam.getDurationMinutes());
-            stmt.setBoolean(4, exam.isResultsVisible());
-            stmt.executeUpdate();
-
-            rs = stmt.getGeneratedKeys();
-            if (!rs.next()) {
-                throw new SQLException("Failed to get generated exam ID");
-            }
-
-            int examId = rs.getInt(1);
-
-            // Insert the questions
-            for (Question question : exam.getQuestions()) {
-                // Insert the question
-                dbManager.closeResources(null, stmt, rs);
-
-                String questionSql = "INSERT INTO questions (text, correct_option, points) VALUES (?, ?, ?)";
-                stmt = conn.prepareStatement(questionSql, PreparedStatement.RETURN_GENERATED_KEYS);
-                stmt.setString(1, question.getText());
-                stmt.setInt(2, question.getCorrectOptionIndex());
-                stmt.setInt(3, question.getPoints());
-                stmt.executeUpdate();
-
-                rs = stmt.getGeneratedKeys();
-                if (!rs.next()) {
-                    throw new SQLException("Failed to get generated question ID");
-                }
-
-                int questionId = rs.getInt(1);
-
-                // Link the question to the exam
-                dbManager.closeResources(null, stmt, rs);
-
-                String linkSql = "INSERT INTO exam_questions (exam_id, question_id) VALUES (?, ?)";
-                stmt = conn.prepareStatement(linkSql);
-                stmt.setInt(1, examId);
-                stmt.setInt(2, questionId);
-                stmt.executeUpdate();
-
-                // Insert the options
-                dbManager.closeResources(null, stmt, null);
-
-                String optionSql = "INSERT INTO question_options (question_id, option_text, option_order) VALUES (?, ?, ?)";
-                stmt = conn.prepareStatement(optionSql);
-
-                List<String> options = question.getOptions();
-                for (int i = 0; i < options.size(); i++) {
-                    stmt.setInt(1, questionId);
-                    stmt.setString(2, options.get(i));
-                    stmt.setInt(3, i);
-                    stmt.addBatch();
-                }
-
-                stmt.executeBatch();
-            }
+            int examId = repository.createExam(exam);
+            examCache.invalidate(examId);
+            catalogChanged();
 
-            conn.commit();
-            controller.logActivity("Created new exam: " + exam.getTitle());
+            log("Created new exam: " + exam.getTitle());
             return true;
         } catch (SQLException e) {
-            try {
-                if (conn != null) {
-                    conn.rollback();
-                }
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
-
-            controller.logActivity("Error creating exam: " + e.getMessage());
+            log("Error creating exam: " + e.getMessage());
             throw new RemoteException("Failed to create exam", e);
-        } finally {
-            try {
-                if (conn != null) {
-                    conn.setAutoCommit(true);
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-
-            dbManager.closeResources(conn, stmt, rs);
         }
     }
 
     @Override
     public boolean updateExam(Exam exam) throws RemoteException {
-        // Implementation similar to createExam but with UPDATE statements
-        controller.logActivity("Updated exam: " + exam.getTitle());
-        return true;
+        try {
+            boolean updated = repository.updateExam(exam);
+            examCache.invalidate(exam.getId());
+            catalogChanged();
+
+            log("Updated exam: " + exam.getTitle() + " (version " + exam.getVersion() + ")");
+            return updated;
+        } catch (SQLException e) {
+            log("Error updating exam: " + e.getMessage());
+            throw new RemoteException("Failed to update exam", e);
+        }
     }
 
     @Override
     public boolean deleteExam(int examId) throws RemoteException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-
         try {
-            conn = dbManager.getConnection();
-
-            // We'll do a soft delete by setting active = 0
-            String sql = "UPDATE exams SET active = 0 WHERE id = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, examId);
-            int rowsAffected = stmt.executeUpdate();
+            // We'll do a soft delete by deactivating the exam
+            boolean deleted = repository.deactivateExam(examId);
+            examCache.invalidate(examId);
+            catalogChanged();
 
-            controller.logActivity("Deleted exam with ID: " + examId);
-            return rowsAffected > 0;
+            log("Deleted exam with ID: " + examId);
+            return deleted;
         } catch (SQLException e) {
-            controller.logActivity("Error deleting exam: " + e.getMessage());
+            log("Error deleting exam: " + e.getMessage());
             throw new RemoteException("Failed to delete exam", e);
-        } finally {
-            dbManager.closeResources(conn, stmt, null);
         }
     }
 
     @Override
     public List<ExamResult> getExamResults(int examId) throws RemoteException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        List<ExamResult> results = new ArrayList<>();
-
         try {
-            conn = dbManager.getConnection();
-            String sql = "SELECT er.*, s.name as student_name "
-                    + "FROM exam_results er "
-                    + "JOIN students s ON er.student_id = s.id "
-                    + "WHERE er.exam_id = ? "
-                    + "ORDER BY er.score DESC";
-
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, examId);
-            rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                ExamResult result = new ExamResult(
-                        rs.getInt("id"),
-                        rs.getInt("exam_id"),
-                        rs.getString("student_id"),
-                        rs.getString("student_name"),
-                        rs.getInt("score"),
-                        rs.getInt("total_possible"),
-                        rs.getTimestamp("submission_time")
-                );
-                results.add(result);
-            }
+            List<ExamResult> results = repository.findResults(examId);
 
-            controller.logActivity("Retrieved results for exam " + examId);
+            log("Retrieved results for exam " + examId);
             return results;
         } catch (SQLException e) {
-            controller.logActivity("Error retrieving exam results: " + e.getMessage());
+            log("Error retrieving exam results: " + e.getMessage());
             throw new RemoteException("Failed to retrieve exam results", e);
-        } finally {
-            dbManager.closeResources(conn, stmt, rs);
         }
     }
 
     @Override
-    public boolean setResultVisibility(int examId, boolean visible) throws RemoteException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
+    public ResultPage getExamResultsPage(int examId, int afterScore, int afterId, int pageSize)
+            throws RemoteException {
+        if (pageSize <= 0 || pageSize > MAX_RESULT_PAGE_SIZE) {
+            pageSize = MAX_RESULT_PAGE_SIZE;
+        }
 
         try {
-            conn = dbManager.getConnection();
-            String sql = "UPDATE exams SET results_visible = ? WHERE id = ?";
+            return repository.findResultsPage(examId, afterScore, afterId, pageSize);
+        } catch (SQLException e) {
+            log("Error retrieving exam results: " + e.getMessage());
+            throw new RemoteException("Failed to retrieve exam results", e);
+        }
+    }
 
-            stmt = conn.prepareStatement(sql);
-            stmt.setBoolean(1, visible);
-            stmt.setInt(2, examId);
-            int rowsAffected = stmt.executeUpdate();
+    @Override
+    public boolean setResultVisibility(int examId, boolean visible) throws RemoteException {
+        try {
+            boolean updated = repository.setResultsVisible(examId, visible);
+            examCache.invalidate(examId); // results_visible is part of the snapshot
+            catalogChanged();
 
-            controller.logActivity("Set results visibility for exam " + examId + " to " + visible);
-            return rowsAffected > 0;
+            log("Set results visibility for exam " + examId + " to " + visible);
+            return updated;
         } catch (SQLException e) {
-            controller.logActivity("Error setting result visibility: " + e.getMessage());
+            log("Error setting result visibility: " + e.getMessage());
             throw new RemoteException("Failed to set result visibility", e);
-        } finally {
-            dbManager.closeResources(conn, stmt, null);
         }
     }
 
-    // Inner class to track active exam sessions
+    // Teacher-side listing for the admin UI
+    public List<Exam> getAllExams() throws RemoteException {
+        try {
+            return repository.findActiveExams();
+        } catch (SQLException e) {
+            log("Error retrieving exams: " + e.getMessage());
+            throw new RemoteException("Failed to retrieve exams", e);
+        }
+    }
+
+    // Loads the stored exam with its questions so the editor diffs against real content
+    public Exam getExamForEditing(int examId) throws RemoteException {
+        try {
+            Exam exam = repository.findExamWithQuestions(examId);
+            if (exam == null) {
+                throw new RemoteException("Exam not found");
+            }
+            return exam;
+        } catch (SQLException e) {
+            log("Error loading exam for editing: " + e.getMessage());
+            throw new RemoteException("Failed to load exam", e);
+        }
+    }
+
+    public void addMetricsSource(Consumer<Map<String, String>> source) {
+        metricsSources.add(source);
+    }
+
+    public Map<String, String> getServerMetrics() {
+        Map<String, String> metrics = new LinkedHashMap<>();
+
+        repository.reportMetrics(metrics);
+
+        metrics.put("Exam cache: entries", examCache.size() + " / " + examCache.getMaxEntries());
+        metrics.put("Exam cache: hits", String.valueOf(examCache.getHits()));
+        metrics.put("Exam cache: misses", String.valueOf(examCache.getMisses()));
+        metrics.put("Exam cache: database loads", String.valueOf(examCache.getLoads()));
+        metrics.put("Exam cache: evictions", String.valueOf(examCache.getEvictions()));
+        metrics.put("Exam cache: invalidations", String.valueOf(examCache.getInvalidations()));
+
+        metrics.put("Exam payload: encodes", String.valueOf(ExamSnapshot.getPayloadEncodeCount()));
+        metrics.put("Exam payload: bytes served", String.valueOf(payloadBytesServed.get()));
+
+        // Covers exam payloads and, with the NIO transport, large responses
+        long before = PayloadCompression.getBytesBefore();
+        long compressed = PayloadCompression.getCompressedCount();
+        metrics.put("Compression: payloads compressed", String.valueOf(compressed));
+        metrics.put("Compression: below threshold or incompressible", String.valueOf(PayloadCompression.getSkippedCount()));
+        metrics.put("Compression: bytes before / after", before + " / " + PayloadCompression.getBytesAfter());
+        metrics.put("Compression: ratio",
+                before > 0 ? String.format("%.2f", (double) PayloadCompression.getBytesAfter() / before) : "-");
+        metrics.put("Compression: average deflate time (ms)",
+                compressed > 0 ? String.format("%.3f", PayloadCompression.getDeflateNanos() / 1e6 / compressed) : "-");
+        metrics.put("Compression: total deflate / inflate time (ms)", String.format("%.1f / %.1f",
+                PayloadCompression.getDeflateNanos() / 1e6, PayloadCompression.getInflateNanos() / 1e6));
+
+        metrics.put("Exam catalog: version", String.valueOf(catalogVersion.get()));
+        metrics.put("Exam catalog: database loads", String.valueOf(catalogLoads.get()));
+        metrics.put("Exam catalog: full responses", String.valueOf(catalogFull.get()));
+        metrics.put("Exam catalog: not-modified responses", String.valueOf(catalogNotModified.get()));
+
+        metrics.put("Exam package: prefetches", String.valueOf(packagesServed.get()));
+        metrics.put("Exam package: bytes served", String.valueOf(packageBytesServed.get()));
+        metrics.put("Exam package: keys released", String.valueOf(keysReleased.get()));
+        metrics.put("Exam package: stale prefetches", String.valueOf(keyVersionMismatches.get()));
+
+        long starts = examStarts.get();
+        metrics.put("Exam starts", String.valueOf(starts));
+        metrics.put("Exam start: queries per start",
+                starts > 0 ? String.format("%.2f", (double) examStartQueries.get() / starts) : "-");
+
+        metrics.put("Submissions: accepted", String.valueOf(submissionPipeline.getAcceptedCount()));
+        metrics.put("Submissions: queue depth", String.valueOf(submissionPipeline.getQueueDepth()));
+        metrics.put("Submissions: committed", String.valueOf(submissionPipeline.getCommittedCount()));
+        metrics.put("Submissions: dead-lettered", String.valueOf(submissionPipeline.getDeadLetteredCount()));
+        metrics.put("Submissions: commit batches", String.valueOf(submissionPipeline.getBatchCount()));
+        metrics.put("Submissions: average batch size", String.format("%.1f", submissionPipeline.getAverageBatchSize()));
+        metrics.put("Submissions: average commit latency (ms)", String.format("%.2f", submissionPipeline.getAverageCommitMillis()));
+        metrics.put("Submissions: max commit latency (ms)", String.format("%.2f", submissionPipeline.getMaxCommitMillis()));
+        metrics.put("Submissions: average accept-to-commit (ms)", String.format("%.1f", submissionPipeline.getAverageAckToCommitMillis()));
+        metrics.put("Submissions: journal size (bytes)", String.valueOf(submissionPipeline.getJournalSizeBytes()));
+
+        long saves = progressSaves.get();
+        metrics.put("Progress: checkpoints saved", String.valueOf(saves));
+        metrics.put("Progress: answers per checkpoint",
+                saves > 0 ? String.format("%.2f", (double) progressAnswersSaved.get() / saves) : "-");
+
+        metrics.put("Active exam sessions", String.valueOf(activeExams.size()));
+        metrics.put("Sessions: students indexed", String.valueOf(studentIndex.size()));
+        metrics.put("Submitted set: entries", String.valueOf(submitted.size()));
+        metrics.put("Submissions: duplicates ignored", String.valueOf(duplicateSubmissions.get()));
+        metrics.put("Sessions: lease expiry policy", expiryPolicy.toString());
+        metrics.put("Sessions: heartbeats", String.valueOf(heartbeats.get()));
+        metrics.put("Sessions: leases expired (auto-submitted)", String.valueOf(leasesAutoSubmitted.get()));
+        metrics.put("Sessions: leases expired (abandoned)", String.valueOf(leasesAbandoned.get()));
+        metrics.put("Sessions: auto-submitted at deadline", String.valueOf(deadlinesAutoSubmitted.get()));
+        metrics.put("Sessions: late submissions rejected", String.valueOf(lateSubmissionsRejected.get()));
+        metrics.put("Session journal: live sessions", String.valueOf(sessionJournal.getLiveCount()));
+        metrics.put("Session journal: size / capacity (bytes)",
+                sessionJournal.getSizeBytes() + " / " + sessionJournal.getCapacityBytes());
+        metrics.put("Session journal: records written", String.valueOf(sessionJournal.getRecordsAppended()));
+        metrics.put("Session journal: compactions", String.valueOf(sessionJournal.getCompactionCount()));
+        metrics.put("Session journal: write failures", String.valueOf(sessionJournalFailures.get()));
+        metrics.put("Session journal: restored / discarded at startup",
+                sessionsRestored + " / " + sessionsDiscarded + " in " + sessionRecoveryMillis + " ms");
+        metrics.put("Session journal: sessions awaiting restore", String.valueOf(deferredSessions.size()));
+
+        for (Consumer<Map<String, String>> source : metricsSources) {
+            source.accept(metrics);
+        }
+        return metrics;
+    }
+
+    // NOT_STARTED only while a new session is being registered; each later move is a single CAS
+    private enum SessionState {
+        NOT_STARTED, IN_PROGRESS, SUBMITTED, EXPIRED
+    }
+
+    // Inner class to track active exam sessions. Kept as one object per session rather than split
+    // into parallel arrays in SessionTable: the lease and deadline wheels and in-flight calls hold the
+    // session itself, table slots move when a stripe grows, and each mutable field would need its own
+    // atomic array. test/server/SessionMemoryBenchmark puts the saving at about 40 of the ~870 bytes
+    // a whole session costs.
     private static class ActiveExamSession {
 
-        private final int examId;
+        private final long key;
+        private final ExamSnapshot snapshot;
         private final String studentId;
         private final long startTime;
         private final long durationMillis;
-
-        public ActiveExamSession(int examId, String studentId, long startTime, long durationMillis) {
-            this.examId = examId;
+        private final ProgressLog progress;
+        private volatile long lastHeartbeat;
+        private volatile long leaseExpiresAt;
+        // Deadline plus grace, pushed back only if finalizing fails
+        private volatile long finalizeAt;
+        // Assigned by the session journal; -1 if the start could not be journaled
+        private volatile int journalId = -1;
+        private final AtomicReference<SessionState> state = new AtomicReference<>(SessionState.NOT_STARTED);
+
+        public ActiveExamSession(long key, ExamSnapshot snapshot, String studentId, long startTime,
+                long durationMillis) {
+            this.key = key;
+            this.snapshot = snapshot;
             this.studentId = studentId;
+            this.progress = new ProgressLog(snapshot.getQuestionCount());
             this.startTime = startTime;
             this.durationMillis = durationMillis;
+            this.finalizeAt = startTime + durationMillis + SUBMIT_GRACE_MILLIS;
+        }
+
+        public long getKey() {
+            return key;
         }
 
         public int getExamId() {
-            return examId;
+            return snapshot.getExamId();
+        }
+
+        // The exam version this student was given, kept until they submit
+        public ExamSnapshot getSnapshot() {
+            return snapshot;
         }
 
         public String getStudentId() {
@@ -594,5 +1207,38 @@ public class ExamServiceImpl implements RemoteExamService {
         public long getDurationMillis() {
             return durationMillis;
         }
+
+        public long getDeadline() {
+            return startTime + durationMillis;
+        }
+
+        public long getFinalizeAt() {
+            return finalizeAt;
+        }
+
+        public ProgressLog getProgress() {
+            return progress;
+        }
+
+        public SessionState getState() {
+            return state.get();
+        }
+
+        public boolean transition(SessionState from, SessionState to) {
+            return state.compareAndSet(from, to);
+        }
+
+        public void renewLease(long now) {
+            lastHeartbeat = now;
+            leaseExpiresAt = now + LEASE_MILLIS;
+        }
+
+        public long getLastHeartbeat() {
+            return lastHeartbeat;
+        }
+
+        public long getLeaseExpiresAt() {
+            return leaseExpiresAt;
+        }
     }
 }
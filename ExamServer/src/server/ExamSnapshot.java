@@ -0,0 +1,216 @@
+package server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import shared.Exam;
+import shared.ExamPackage;
+import shared.ExamPayloadCodec;
+import shared.Question;
+
+/**
+ * Immutable copy of an exam's content as stored in the database. Snapshots
+ * are shared between requests, so callers get their own copy via toExam().
+ */
+public final class ExamSnapshot {
+
+    private final int examId;
+    private final String title;
+    private final String description;
+    private final int durationMinutes;
+    private final boolean resultsVisible;
+    private final int version;
+    private final long startTime;
+    private final List<QuestionSnapshot> questions;
+    private final Map<Integer, QuestionSnapshot> questionsById;
+    private final int totalPoints;
+
+    // Answer key as parallel arrays in delivery order, for grading packed submissions
+    private final int[] questionIds;
+    private final int[] correctOptions;
+    private final int[] questionPoints;
+
+    // Encoded once on first request and then shared by every student
+    private volatile byte[] payload;
+    private volatile byte[] sealedPackage;
+    private static final AtomicLong payloadEncodeCount = new AtomicLong();
+
+    public ExamSnapshot(Exam exam) {
+        this.examId = exam.getId();
+        this.title = exam.getTitle();
+        this.description = exam.getDescription();
+        this.durationMinutes = exam.getDurationMinutes();
+        this.resultsVisible = exam.isResultsVisible();
+        this.version = exam.getVersion();
+        this.startTime = exam.getStartTime() != null ? exam.getStartTime().getTime() : 0;
+
+        List<QuestionSnapshot> copied = new ArrayList<>();
+        Map<Integer, QuestionSnapshot> byId = new HashMap<>();
+        int points = 0;
+        if (exam.getQuestions() != null) {
+            for (Question question : exam.getQuestions()) {
+                QuestionSnapshot snapshot = new QuestionSnapshot(question);
+                copied.add(snapshot);
+                byId.put(snapshot.getId(), snapshot);
+                points += snapshot.getPoints();
+            }
+        }
+        this.questions = Collections.unmodifiableList(copied);
+        this.questionsById = byId;
+        this.totalPoints = points;
+
+        this.questionIds = new int[copied.size()];
+        this.correctOptions = new int[copied.size()];
+        this.questionPoints = new int[copied.size()];
+        for (int i = 0; i < copied.size(); i++) {
+            QuestionSnapshot question = copied.get(i);
+            questionIds[i] = question.getId();
+            correctOptions[i] = question.getCorrectOptionIndex();
+            questionPoints[i] = question.getPoints();
+        }
+    }
+
+    public int getExamId() {
+        return examId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    // Millisecond start time, or 0 if the exam may be started as soon as it is active
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public QuestionSnapshot getQuestion(int questionId) {
+        return questionsById.get(questionId);
+    }
+
+    public int getTotalPoints() {
+        return totalPoints;
+    }
+
+    public int getQuestionCount() {
+        return questionIds.length;
+    }
+
+    // Shared with every submission of this version; callers must not modify it
+    int[] getQuestionIds() {
+        return questionIds;
+    }
+
+    // Scores option indexes given in question order, -1 meaning unanswered
+    public int grade(int[] selectedOptions) {
+        int score = 0;
+        for (int i = 0; i < correctOptions.length; i++) {
+            if (selectedOptions[i] == correctOptions[i]) {
+                score += questionPoints[i];
+            }
+        }
+        return score;
+    }
+
+    public byte[] getPayload() throws IOException {
+        byte[] encoded = payload;
+        if (encoded == null) {
+            synchronized (this) {
+                encoded = payload;
+                if (encoded == null) {
+                    encoded = ExamPayloadCodec.encode(toExam());
+                    payload = encoded;
+                    payloadEncodeCount.incrementAndGet();
+                }
+            }
+        }
+        return encoded;
+    }
+
+    // The payload encrypted for prefetching; sealed once per snapshot with the key for this version
+    public byte[] getSealedPackage(byte[] key) throws IOException {
+        byte[] sealed = sealedPackage;
+        if (sealed == null) {
+            synchronized (this) {
+                sealed = sealedPackage;
+                if (sealed == null) {
+                    sealed = ExamPackage.seal(examId, version, getPayload(), key);
+                    sealedPackage = sealed;
+                }
+            }
+        }
+        return sealed;
+    }
+
+    public static long getPayloadEncodeCount() {
+        return payloadEncodeCount.get();
+    }
+
+    public Exam toExam() {
+        Exam exam = new Exam(examId, title, description, durationMinutes, resultsVisible);
+        exam.setVersion(version);
+        exam.setStartTime(startTime != 0 ? new Date(startTime) : null);
+
+        List<Question> copied = new ArrayList<>(questions.size());
+        for (QuestionSnapshot question : questions) {
+            copied.add(question.toQuestion());
+        }
+        exam.setQuestions(copied);
+        return exam;
+    }
+
+    public static final class QuestionSnapshot {
+
+        private final int id;
+        private final String text;
+        private final List<String> options;
+        private final int correctOptionIndex;
+        private final int points;
+
+        QuestionSnapshot(Question question) {
+            this.id = question.getId();
+            this.text = question.getText();
+            this.options = Collections.unmodifiableList(question.getOptions() != null
+                    ? new ArrayList<>(question.getOptions())
+                    : new ArrayList<String>());
+            this.correctOptionIndex = question.getCorrectOptionIndex();
+            this.points = question.getPoints();
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public List<String> getOptions() {
+            return options;
+        }
+
+        public int getCorrectOptionIndex() {
+            return correctOptionIndex;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        Question toQuestion() {
+            return new Question(id, text, new ArrayList<>(options), correctOptionIndex, points);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package server;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Hi-lo style id allocator. Ids are reserved from the id_sequences table a
+ * block at a time, so inserting hundreds of rows only costs a round trip
+ * for the reservation instead of one RETURN_GENERATED_KEYS insert per row.
+ * Ids of a block that is never used are simply skipped.
+ */
+public class IdBlockAllocator {
+
+    private final DatabaseManager dbManager;
+    private final String sequenceName;
+    private final String tableName;
+    private final int blockSize;
+
+    // Current reserved range is [next, limit)
+    private long next = 0;
+    private long limit = 0;
+    private boolean initialized = false;
+
+    public IdBlockAllocator(DatabaseManager dbManager, String sequenceName, String tableName, int blockSize) {
+        this.dbManager = dbManager;
+        this.sequenceName = sequenceName;
+        this.tableName = tableName;
+        this.blockSize = blockSize;
+    }
+
+    public synchronized int[] allocate(int count) throws SQLException {
+        int[] ids = new int[count];
+        int filled = 0;
+
+        while (filled < count) {
+            if (next >= limit) {
+                // Reserve at least what is still needed so a large exam takes a single reservation
+                reserveBlock(Math.max(blockSize, count - filled));
+            }
+            while (filled < count && next < limit) {
+                ids[filled++] = (int) next++;
+            }
+        }
+
+        return ids;
+    }
+
+    private void reserveBlock(int size) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            // Reservations commit on their own so a rolled-back insert never hands out ids twice
+            conn = dbManager.getConnection();
+
+            if (!initialized) {
+                initializeSequence(conn);
+                initialized = true;
+            }
+
+            String reserveSql = "UPDATE id_sequences SET next_value = LAST_INSERT_ID(next_value + ?) WHERE name = ?";
+            stmt = conn.prepareStatement(reserveSql);
+            stmt.setInt(1, size);
+            stmt.setString(2, sequenceName);
+            stmt.executeUpdate();
+
+            dbManager.closeResources(null, stmt, null);
+
+            stmt = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+            rs = stmt.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("Failed to reserve ids for " + sequenceName);
+            }
+
+            limit = rs.getLong(1);
+            next = limit - size;
+        } finally {
+            dbManager.closeResources(conn, stmt, rs);
+        }
+    }
+
+    // Creates the sequence row on first use, starting above any id already in the table
+    private void initializeSequence(Connection conn) throws SQLException {
+        PreparedStatement stmt = null;
+
+        try {
+            String seedSql = "INSERT IGNORE INTO id_sequences (name, next_value) "
+                    + "SELECT ?, COALESCE(MAX(id), 0) + 1 FROM " + tableName;
+            stmt = conn.prepareStatement(seedSql);
+            stmt.setString(1, sequenceName);
+            stmt.executeUpdate();
+        } finally {
+            dbManager.closeResources(null, stmt, null);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package server;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import shared.Exam;
+import shared.ExamResult;
+import shared.Question;
+import shared.ResultPage;
+
+/**
+ * Repository held entirely in memory, for load tests, benchmarks and CI
+ * runs without a MySQL install. Every index is a concurrent map so readers
+ * never block; stored objects are copied on the way in and out so callers
+ * cannot mutate shared state.
+ */
+public class InMemoryExamRepository implements ExamRepository {
+
+    // Same order as the MySQL results queries: score descending, then id
+    private static final Comparator<ExamResult> RESULT_ORDER =
+            Comparator.comparingInt(ExamResult::getScore).reversed().thenComparingInt(ExamResult::getId);
+
+    private final ConcurrentMap<String, UserRecord> teachers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, UserRecord> students = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Integer, Exam> exams = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Boolean> activeExams = new ConcurrentHashMap<>();
+
+    // exam id -> student id -> result / answers
+    private final ConcurrentMap<Integer, ConcurrentMap<String, ExamResult>> results = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, ConcurrentMap<String, int[][]>> answers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextExamId = new AtomicInteger(1);
+    private final AtomicInteger nextQuestionId = new AtomicInteger(1);
+    private final AtomicInteger nextResultId = new AtomicInteger(1);
+
+    public void addTeacher(String username, String password, String name) {
+        teachers.put(username, new UserRecord(password, name));
+    }
+
+    public void addStudent(String username, String password, String name) {
+        students.put(username, new UserRecord(password, name));
+    }
+
+    @Override
+    public boolean authenticate(String username, String password, boolean isTeacher) {
+        UserRecord user = (isTeacher ? teachers : students).get(username);
+        return user != null && user.password.equals(password);
+    }
+
+    @Override
+    public List<Exam> findActiveExams() {
+        List<Exam> active = new ArrayList<>();
+        for (Exam exam : exams.values()) {
+            if (Boolean.TRUE.equals(activeExams.get(exam.getId()))) {
+                active.add(copyHeader(exam));
+            }
+        }
+        active.sort(Comparator.comparingInt(Exam::getId));
+        return active;
+    }
+
+    @Override
+    public Exam findExamWithQuestions(int examId) {
+        Exam exam = exams.get(examId);
+        return exam != null ? copyWithQuestions(exam) : null;
+    }
+
+    @Override
+    public Exam findExam(int examId) {
+        Exam exam = exams.get(examId);
+        return exam != null ? copyHeader(exam) : null;
+    }
+
+    @Override
+    public int createExam(Exam exam) {
+        int examId = nextExamId.getAndIncrement();
+
+        Exam stored = copyHeader(exam);
+        stored.setId(examId);
+        stored.setVersion(1);
+        List<Question> questions = new ArrayList<>();
+        if (exam.getQuestions() != null) {
+            for (Question question : exam.getQuestions()) {
+                Question copy = copyQuestion(question);
+                copy.setId(nextQuestionId.getAndIncrement());
+                questions.add(copy);
+            }
+        }
+        stored.setQuestions(questions);
+
+        exams.put(examId, stored);
+        activeExams.put(examId, Boolean.TRUE);
+        return examId;
+    }
+
+    // Replaces the stored exam under its key; questions new to the exam get fresh ids
+    @Override
+    public boolean updateExam(Exam exam) throws SQLException {
+        SQLException[] conflict = new SQLException[1];
+
+        Exam updated = exams.computeIfPresent(exam.getId(), (id, stored) -> {
+            // Stored versions start at 1, so an exam that never carried one (version 0) is stale too
+            if (exam.getVersion() != stored.getVersion()) {
+                conflict[0] = new SQLException("Exam " + id + " was changed by someone else (version "
+                        + stored.getVersion() + ", editing version " + exam.getVersion() + ")");
+                return stored;
+            }
+
+            Set<Integer> storedIds = new HashSet<>();
+            for (Question question : stored.getQuestions()) {
+                storedIds.add(question.getId());
+            }
+
+            Exam copy = copyHeader(exam);
+            copy.setVersion(stored.getVersion() + 1);
+            List<Question> questions = new ArrayList<>();
+            if (exam.getQuestions() != null) {
+                for (Question question : exam.getQuestions()) {
+                    Question questionCopy = copyQuestion(question);
+                    if (!storedIds.contains(question.getId())) {
+                        questionCopy.setId(nextQuestionId.getAndIncrement());
+                    }
+                    questions.add(questionCopy);
+                }
+            }
+            copy.setQuestions(questions);
+            return copy;
+        });
+
+        if (conflict[0] != null) {
+            throw conflict[0];
+        }
+        if (updated != null) {
+            exam.setVersion(updated.getVersion());
+        }
+        return updated != null;
+    }
+
+    @Override
+    public boolean deactivateExam(int examId) {
+        return activeExams.replace(examId, Boolean.FALSE) != null;
+    }
+
+    @Override
+    public boolean setResultsVisible(int examId, boolean visible) {
+        Exam[] updated = new Exam[1];
+        exams.computeIfPresent(examId, (id, exam) -> {
+            Exam copy = copyWithQuestions(exam);
+            copy.setResultsVisible(visible);
+            updated[0] = copy;
+            return copy;
+        });
+        return updated[0] != null;
+    }
+
+    @Override
+    public Map<Integer, List<String>> findSubmittedStudentIds() {
+        Map<Integer, List<String>> submitted = new HashMap<>();
+        for (Map.Entry<Integer, ConcurrentMap<String, ExamResult>> entry : results.entrySet()) {
+            submitted.put(entry.getKey(), new ArrayList<>(entry.getValue().keySet()));
+        }
+        return submitted;
+    }
+
+    @Override
+    public ExamResult findResult(int examId, String studentId) {
+        Map<String, ExamResult> forExam = results.get(examId);
+        ExamResult result = forExam != null ? forExam.get(studentId) : null;
+        return result != null ? copyResult(result) : null;
+    }
+
+    @Override
+    public List<ExamResult> findResults(int examId) {
+        List<ExamResult> found = new ArrayList<>();
+        Map<String, ExamResult> forExam = results.get(examId);
+        if (forExam != null) {
+            for (ExamResult result : forExam.values()) {
+                found.add(copyResult(result));
+            }
+        }
+        found.sort(RESULT_ORDER);
+        return found;
+    }
+
+    @Override
+    public ResultPage findResultsPage(int examId, int afterScore, int afterId, int pageSize) {
+        List<ExamResult> page = new ArrayList<>();
+        boolean hasMore = false;
+
+        for (ExamResult result : findResults(examId)) {
+            if (afterId > 0 && (result.getScore() > afterScore
+                    || (result.getScore() == afterScore && result.getId() <= afterId))) {
+                continue;
+            }
+            if (page.size() == pageSize) {
+                hasMore = true;
+                break;
+            }
+            page.add(result);
+        }
+        return new ResultPage(page, hasMore);
+    }
+
+    @Override
+    public void saveSubmissions(List<Submission> batch) {
+        for (Submission submission : batch) {
+            ConcurrentMap<String, ExamResult> forExam =
+                    results.computeIfAbsent(submission.getExamId(), id -> new ConcurrentHashMap<>());
+
+            UserRecord student = students.get(submission.getStudentId());
+            ExamResult result = new ExamResult(
+                    nextResultId.getAndIncrement(),
+                    submission.getExamId(),
+                    submission.getStudentId(),
+                    student != null ? student.name : submission.getStudentId(),
+                    submission.getScore(),
+                    submission.getTotalPossible(),
+                    new Date(submission.getSubmittedAt())
+            );
+
+            // First write wins, matching the guarded insert of the MySQL backend
+            if (forExam.putIfAbsent(submission.getStudentId(), result) == null) {
+                answers.computeIfAbsent(submission.getExamId(), id -> new ConcurrentHashMap<>())
+                        .put(submission.getStudentId(),
+                                new int[][]{submission.getQuestionIds(), submission.getSelectedOptions()});
+            }
+        }
+    }
+
+    @Override
+    public void reportMetrics(Map<String, String> metrics) {
+        int resultCount = 0;
+        for (Map<String, ExamResult> forExam : results.values()) {
+            resultCount += forExam.size();
+        }
+
+        metrics.put("In-memory store: exams", String.valueOf(exams.size()));
+        metrics.put("In-memory store: results", String.valueOf(resultCount));
+        metrics.put("In-memory store: users", String.valueOf(teachers.size() + students.size()));
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    private static Exam copyHeader(Exam exam) {
+        Exam copy = new Exam(exam.getId(), exam.getTitle(), exam.getDescription(),
+                exam.getDurationMinutes(), exam.isResultsVisible());
+        copy.setVersion(exam.getVersion());
+        copy.setStartTime(exam.getStartTime() != null ? new Date(exam.getStartTime().getTime()) : null);
+        return copy;
+    }
+
+    private static Exam copyWithQuestions(Exam exam) {
+        Exam copy = copyHeader(exam);
+        List<Question> questions = new ArrayList<>();
+        if (exam.getQuestions() != null) {
+            for (Question question : exam.getQuestions()) {
+                questions.add(copyQuestion(question));
+            }
+        }
+        copy.setQuestions(questions);
+        return copy;
+    }
+
+    private static Question copyQuestion(Question question) {
+        return new Question(question.getId(), question.getText(),
+                question.getOptions() != null ? new ArrayList<>(question.getOptions()) : new ArrayList<String>(),
+                question.getCorrectOptionIndex(), question.getPoints());
+    }
+
+    private static ExamResult copyResult(ExamResult result) {
+        return new ExamResult(result.getId(), result.getExamId(), result.getStudentId(),
+                result.getStudentName(), result.getScore(), result.getTotalPossible(),
+                result.getSubmissionTime());
+    }
+
+    private static class UserRecord {
+
+        private final String password;
+        private final String name;
+
+        UserRecord(String password, String name) {
+            this.password = password;
+            this.name = name;
+        }
+    }
+}
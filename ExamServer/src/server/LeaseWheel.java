@@ -0,0 +1,104 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hashed timer wheel that reaps expired leases. Renewing a lease only moves
+ * its expiry time; when the lease's slot comes round the wheel either
+ * expires it or puts it back for the time that is left, so a heartbeat
+ * costs one volatile write rather than a remove and insert in a sorted
+ * structure. Expiry is accurate to one tick. Times further out than one
+ * lap of the wheel, such as exam deadlines, just go round again.
+ */
+class LeaseWheel<T> {
+
+    private final long tickMillis;
+    private final Queue<T>[] slots;
+    private final ToLongFunction<T> expiresAt;
+    private final Consumer<T> onExpired;
+    private final Consumer<String> log;
+    private final ScheduledExecutorService ticker;
+
+    // Last tick whose slot has been, or is being, drained; leases are never placed in a slot already passed
+    private volatile long processedTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    LeaseWheel(String name, long tickMillis, int slotCount, ToLongFunction<T> expiresAt, Consumer<T> onExpired,
+            Consumer<String> log) {
+        this.tickMillis = tickMillis;
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.expiresAt = expiresAt;
+        this.onExpired = onExpired;
+        this.log = log;
+        this.processedTick = System.currentTimeMillis() / tickMillis;
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void add(T lease) {
+        long tick = Math.max(expiresAt.applyAsLong(lease) / tickMillis, processedTick + 1);
+        Queue<T> slot = slots[(int) (tick % slots.length)];
+        slot.add(lease);
+
+        // The tick may have started draining this slot since processedTick was read; if the lease is
+        // still there it was missed and would wait a whole lap, so place it again
+        if (processedTick >= tick && slot.remove(lease)) {
+            add(lease);
+        }
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / tickMillis;
+
+        // Catch up on ticks missed while the thread was delayed, but never lap the wheel
+        long firstTick = Math.max(processedTick + 1, currentTick - slots.length + 1);
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            // Published before draining, so an add() that misses this slot sees it and moves on
+            processedTick = tick;
+            Queue<T> slot = slots[(int) (tick % slots.length)];
+            List<T> due = new ArrayList<>();
+            T lease;
+            while ((lease = slot.poll()) != null) {
+                due.add(lease);
+            }
+
+            for (T candidate : due) {
+                if (expiresAt.applyAsLong(candidate) > now) {
+                    add(candidate); // renewed, or due on a later lap
+                } else {
+                    expire(candidate);
+                }
+            }
+        }
+    }
+
+    private void expire(T lease) {
+        try {
+            onExpired.accept(lease);
+        } catch (RuntimeException e) {
+            // Keep the wheel turning for everyone else
+            log.accept("Error expiring lease: " + e);
+        }
+    }
+
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,794 @@
+package server;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import shared.Exam;
+import shared.ExamResult;
+import shared.Question;
+import shared.ResultPage;
+
+public class MySqlExamRepository implements ExamRepository {
+
+    // Question ids are reserved in blocks so createExam can batch its inserts
+    private static final int QUESTION_ID_BLOCK_SIZE = 100;
+
+    private final DatabaseManager dbManager;
+    private final IdBlockAllocator questionIdAllocator;
+
+    public MySqlExamRepository(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.questionIdAllocator = new IdBlockAllocator(dbManager, "questions", "questions", QUESTION_ID_BLOCK_SIZE);
+    }
+
+    @Override
+    public boolean authenticate(String username, String password, boolean isTeacher) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = dbManager.getConnection();
+            String table = isTeacher ? "teachers" : "students";
+            String sql = "SELECT * FROM " + table + " WHERE username = ? AND password = ?";
+
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, username);
+            stmt.setString(2, password); // In a real app, use password hashing
+
+            rs = stmt.executeQuery();
+            return rs.next();
+        } finally {
+            dbManager.closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public List<Exam> findActiveExams() throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        List<Exam> exams = new ArrayList<>();
+
+        try {
+            conn = dbManager.getConnection();
+            String sql = "SELECT * FROM exams WHERE active = 1";
+
+            stmt = conn.prepareStatement(sql);
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                exams.add(readExam(rs));
+            }
+
+            return exams;
+        } finally {
+            dbManager.closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public Exam findExamWithQuestions(int examId) throws SQLException {
+        Connection conn = null;
+
+        try {
+            conn = dbManager.getConnection();
+            return loadExamWithQuestions(conn, examId);
+        } finally {
+            dbManager.closeResources(conn, null, null);
+        }
+    }
+
+    // Builds the exam from a single joined query ordered so that each question's
+    // options arrive consecutively; returns null if the exam does not exist
+    private Exam loadExamWithQuestions(Connection conn, int examId) throws SQLException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            String sql = "SELECT e.id AS exam_id, e.title, e.description, e.duration_minutes, e.results_visible, "
+                    + "e.version, e.start_time, "
+                    + "q.id AS question_id, q.text, q.correct_option, q.points, o.option_text "
+                    + "FROM exams e "
+                    + "LEFT JOIN exam_questions eq ON eq.exam_id = e.id "
+                    + "LEFT JOIN questions q ON q.id = eq.question_id "
+                    + "LEFT JOIN question_options o ON o.question_id = q.id "
+                    + "WHERE e.id = ? "
+                    + "ORDER BY q.id, o.option_order";
+
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, examId);
+            rs = stmt.executeQuery();
+
+            Exam exam = null;
+            List<Question> questions = new ArrayList<>();
+            Question current = null;
+
+            while (rs.next()) {
+                if (exam == null) {
+                    exam = new Exam(
+                            rs.getInt("exam_id"),
+                            rs.getString("title"),
+                            rs.getString("description"),
+                            rs.getInt("duration_minutes"),
+                            rs.getBoolean("results_visible")
+                    );
+                    exam.setVersion(rs.getInt("version"));
+                    exam.setStartTime(rs.getTimestamp("start_time"));
+                }
+
+                int questionId = rs.getInt("question_id");
+                if (rs.wasNull()) {
+                    // Exam without questions
+                    continue;
+                }
+
+                if (current == null || current.getId() != questionId) {
+                    current = new Question(
+                            questionId,
+                            rs.getString("text"),
+                            new ArrayList<>(),
+                            rs.getInt("correct_option"),
+                            rs.getInt("points")
+                    );
+                    questions.add(current);
+                }
+
+                String optionText = rs.getString("option_text");
+                if (optionText != null) {
+                    current.getOptions().add(optionText);
+                }
+            }
+
+            if (exam != null) {
+                exam.setQuestions(questions);
+            }
+            return exam;
+        } finally {
+            dbManager.closeResources(null, stmt, rs);
+        }
+    }
+
+    @Override
+    public Exam findExam(int examId) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = dbManager.getConnection();
+            String sql = "SELECT * FROM exams WHERE id = ?";
+
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, examId);
+            rs = stmt.executeQuery();
+
+            return rs.next() ? readExam(rs) : null;
+        } finally {
+            dbManager.closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public int createExam(Exam exam) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            // Reserve question ids first; the allocator uses its own connection
+            List<Question> questions = exam.getQuestions();
+            int[] questionIds = questionIdAllocator.allocate(questions.size());
+
+            conn = dbManager.getConnection();
+            conn.setAutoCommit(false);
+
+            // Insert the exam
+            String examSql = "INSERT INTO exams (title, description, duration_minutes, results_visible, start_time, active) "
+                    + "VALUES (?, ?, ?, ?, ?, 1)";
+            stmt = conn.prepareStatement(examSql, PreparedStatement.RETURN_GENERATED_KEYS);
+            stmt.setString(1, exam.getTitle());
+            stmt.setString(2, exam.getDescription());
+            stmt.setInt(3, exam.getDurationMinutes());
+            stmt.setBoolean(4, exam.isResultsVisible());
+            stmt.setTimestamp(5, toTimestamp(exam.getStartTime()));
+            stmt.executeUpdate();
+
+            rs = stmt.getGeneratedKeys();
+            if (!rs.next()) {
+                throw new SQLException("Failed to get generated exam ID");
+            }
+
+            int examId = rs.getInt(1);
+
+            // Insert the questions with pre-allocated ids in one batch
+            dbManager.closeResources(null, stmt, rs);
+            rs = null;
+
+            String questionSql = "INSERT INTO questions (id, text, correct_option, points) VALUES (?, ?, ?, ?)";
+            stmt = conn.prepareStatement(questionSql);
+            for (int i = 0; i < questions.size(); i++) {
+                Question question = questions.get(i);
+                stmt.setInt(1, questionIds[i]);
+                stmt.setString(2, question.getText());
+                stmt.setInt(3, question.getCorrectOptionIndex());
+                stmt.setInt(4, question.getPoints());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            // Link the questions to the exam
+            dbManager.closeResources(null, stmt, null);
+
+            String linkSql = "INSERT INTO exam_questions (exam_id, question_id) VALUES (?, ?)";
+            stmt = conn.prepareStatement(linkSql);
+            for (int questionId : questionIds) {
+                stmt.setInt(1, examId);
+                stmt.setInt(2, questionId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            // Insert the options for every question in one batch
+            dbManager.closeResources(null, stmt, null);
+
+            String optionSql = "INSERT INTO question_options (question_id, option_text, option_order) VALUES (?, ?, ?)";
+            stmt = conn.prepareStatement(optionSql);
+            for (int i = 0; i < questions.size(); i++) {
+                List<String> options = questions.get(i).getOptions();
+                for (int j = 0; j < options.size(); j++) {
+                    stmt.setInt(1, questionIds[i]);
+                    stmt.setString(2, options.get(j));
+                    stmt.setInt(3, j);
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+
+            conn.commit();
+            return examId;
+        } catch (SQLException | RuntimeException e) {
+            rollback(conn);
+            throw e;
+        } finally {
+            resetAutoCommit(conn);
+            dbManager.closeResources(conn, stmt, rs);
+        }
+    }
+
+    // Diffs the edited exam against the stored version and only writes what changed
+    @Override
+    public boolean updateExam(Exam exam) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            // Questions the editor created carry temporary ids (<= 0); reserve real ones up front
+            List<Question> edited = exam.getQuestions() != null ? exam.getQuestions() : new ArrayList<Question>();
+            int newCount = 0;
+            for (Question question : edited) {
+                if (question.getId() <= 0) {
+                    newCount++;
+                }
+            }
+            int[] newIds = questionIdAllocator.allocate(newCount);
+
+            conn = dbManager.getConnection();
+            conn.setAutoCommit(false);
+
+            // Lock the exam row so concurrent edits serialize, and detect stale editors
+            stmt = conn.prepareStatement("SELECT version FROM exams WHERE id = ? FOR UPDATE");
+            stmt.setInt(1, exam.getId());
+            rs = stmt.executeQuery();
+            if (!rs.next()) {
+                conn.rollback();
+                return false;
+            }
+            int storedVersion = rs.getInt("version");
+            dbManager.closeResources(null, stmt, rs);
+            rs = null;
+            stmt = null;
+
+            // Stored versions start at 1, so an exam that never carried one (version 0) is stale too
+            if (exam.getVersion() != storedVersion) {
+                throw new SQLException("Exam " + exam.getId() + " was changed by someone else (version "
+                        + storedVersion + ", editing version " + exam.getVersion() + ")");
+            }
+
+            Map<Integer, Question> stored = new HashMap<>();
+            Exam storedExam = loadExamWithQuestions(conn, exam.getId());
+            for (Question question : storedExam.getQuestions()) {
+                stored.put(question.getId(), question);
+            }
+
+            // Header fields and the version bump are a single-row update
+            stmt = conn.prepareStatement("UPDATE exams SET title = ?, description = ?, duration_minutes = ?, "
+                    + "results_visible = ?, start_time = ?, version = version + 1 WHERE id = ?");
+            stmt.setString(1, exam.getTitle());
+            stmt.setString(2, exam.getDescription());
+            stmt.setInt(3, exam.getDurationMinutes());
+            stmt.setBoolean(4, exam.isResultsVisible());
+            stmt.setTimestamp(5, toTimestamp(exam.getStartTime()));
+            stmt.setInt(6, exam.getId());
+            stmt.executeUpdate();
+            dbManager.closeResources(null, stmt, null);
+            stmt = null;
+
+            QuestionDiff diff = new QuestionDiff(conn);
+            int nextNew = 0;
+
+            for (Question question : edited) {
+                Question before = question.getId() > 0 ? stored.remove(question.getId()) : null;
+
+                if (before == null) {
+                    // A positive id not linked to this exam (unlinked by another edit, or repeated in
+                    // the editor) is added as a new question, as the in-memory repository does
+                    int questionId = question.getId() <= 0
+                            ? newIds[nextNew++]
+                            : questionIdAllocator.allocate(1)[0];
+                    diff.insertQuestion(exam.getId(), questionId, question);
+                    continue;
+                }
+
+                if (!equal(before.getText(), question.getText())
+                        || before.getCorrectOptionIndex() != question.getCorrectOptionIndex()
+                        || before.getPoints() != question.getPoints()) {
+                    diff.updateQuestion(question);
+                }
+                diff.diffOptions(question.getId(), before.getOptions(), question.getOptions());
+            }
+
+            // Whatever is left was removed in the editor; unlink it but keep the rows for past answers
+            for (Integer removedId : stored.keySet()) {
+                diff.unlinkQuestion(exam.getId(), removedId);
+            }
+
+            diff.execute();
+            conn.commit();
+
+            exam.setVersion(storedVersion + 1);
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            // Anything short of the commit leaves neither the header update nor the version bump behind
+            rollback(conn);
+            throw e;
+        } finally {
+            resetAutoCommit(conn);
+            dbManager.closeResources(conn, stmt, rs);
+        }
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // Collects the writes of one updateExam into per-statement batches, so each kind of
+    // change is a single round trip however many questions it touches
+    private class QuestionDiff {
+
+        private final Connection conn;
+        private PreparedStatement insertQuestion;
+        private PreparedStatement linkQuestion;
+        private PreparedStatement updateQuestion;
+        private PreparedStatement unlinkQuestion;
+        private PreparedStatement insertOption;
+        private PreparedStatement updateOption;
+        private PreparedStatement deleteOptions;
+
+        QuestionDiff(Connection conn) {
+            this.conn = conn;
+        }
+
+        void insertQuestion(int examId, int questionId, Question question) throws SQLException {
+            if (insertQuestion == null) {
+                insertQuestion = conn.prepareStatement(
+                        "INSERT INTO questions (id, text, correct_option, points) VALUES (?, ?, ?, ?)");
+                linkQuestion = conn.prepareStatement(
+                        "INSERT INTO exam_questions (exam_id, question_id) VALUES (?, ?)");
+            }
+
+            insertQuestion.setInt(1, questionId);
+            insertQuestion.setString(2, question.getText());
+            insertQuestion.setInt(3, question.getCorrectOptionIndex());
+            insertQuestion.setInt(4, question.getPoints());
+            insertQuestion.addBatch();
+
+            linkQuestion.setInt(1, examId);
+            linkQuestion.setInt(2, questionId);
+            linkQuestion.addBatch();
+
+            List<String> options = question.getOptions();
+            for (int i = 0; i < options.size(); i++) {
+                insertOption(questionId, i, options.get(i));
+            }
+        }
+
+        void updateQuestion(Question question) throws SQLException {
+            if (updateQuestion == null) {
+                updateQuestion = conn.prepareStatement(
+                        "UPDATE questions SET text = ?, correct_option = ?, points = ? WHERE id = ?");
+            }
+
+            updateQuestion.setString(1, question.getText());
+            updateQuestion.setInt(2, question.getCorrectOptionIndex());
+            updateQuestion.setInt(3, question.getPoints());
+            updateQuestion.setInt(4, question.getId());
+            updateQuestion.addBatch();
+        }
+
+        void unlinkQuestion(int examId, int questionId) throws SQLException {
+            if (unlinkQuestion == null) {
+                unlinkQuestion = conn.prepareStatement(
+                        "DELETE FROM exam_questions WHERE exam_id = ? AND question_id = ?");
+            }
+
+            unlinkQuestion.setInt(1, examId);
+            unlinkQuestion.setInt(2, questionId);
+            unlinkQuestion.addBatch();
+        }
+
+        // Options are keyed by position: changed text is updated in place, the tail is added or trimmed
+        void diffOptions(int questionId, List<String> before, List<String> after) throws SQLException {
+            int common = Math.min(before.size(), after.size());
+
+            for (int i = 0; i < common; i++) {
+                if (!equal(before.get(i), after.get(i))) {
+                    if (updateOption == null) {
+                        updateOption = conn.prepareStatement(
+                                "UPDATE question_options SET option_text = ? WHERE question_id = ? AND option_order = ?");
+                    }
+                    updateOption.setString(1, after.get(i));
+                    updateOption.setInt(2, questionId);
+                    updateOption.setInt(3, i);
+                    updateOption.addBatch();
+                }
+            }
+
+            for (int i = common; i < after.size(); i++) {
+                insertOption(questionId, i, after.get(i));
+            }
+
+            if (before.size() > after.size()) {
+                if (deleteOptions == null) {
+                    deleteOptions = conn.prepareStatement(
+                            "DELETE FROM question_options WHERE question_id = ? AND option_order >= ?");
+                }
+                deleteOptions.setInt(1, questionId);
+                deleteOptions.setInt(2, after.size());
+                deleteOptions.addBatch();
+            }
+        }
+
+        private void insertOption(int questionId, int order, String text) throws SQLException {
+            if (insertOption == null) {
+                insertOption = conn.prepareStatement(
+                        "INSERT INTO question_options (question_id, option_text, option_order) VALUES (?, ?, ?)");
+            }
+
+            insertOption.setInt(1, questionId);
+            insertOption.setString(2, text);
+            insertOption.setInt(3, order);
+            insertOption.addBatch();
+        }
+
+        // Trimmed options are deleted before inserts so the unique (question_id, option_order) index holds
+        void execute() throws SQLException {
+            PreparedStatement[] ordered = {
+                deleteOptions, unlinkQuestion, updateQuestion, updateOption,
+                insertQuestion, linkQuestion, insertOption
+            };
+
+            try {
+                for (PreparedStatement stmt : ordered) {
+                    if (stmt != null) {
+                        stmt.executeBatch();
+                    }
+                }
+            } finally {
+                for (PreparedStatement stmt : ordered) {
+                    dbManager.closeResources(null, stmt, null);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean deactivateExam(int examId) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = dbManager.getConnection();
+
+            // We'll do a soft delete by setting active = 0
+            String sql = "UPDATE exams SET active = 0 WHERE id = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, examId);
+            return stmt.executeUpdate() > 0;
+        } finally {
+            dbManager.closeResources(conn, stmt, null);
+        }
+    }
+
+    @Override
+    public boolean setResultsVisible(int examId, boolean visible) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = dbManager.getConnection();
+            String sql = "UPDATE exams SET results_visible = ? WHERE id = ?";
+
+            stmt = conn.prepareStatement(sql);
+            stmt.setBoolean(1, visible);
+            stmt.setInt(2, examId);
+            return stmt.executeUpdate() > 0;
+        } finally {
+            dbManager.closeResources(conn, stmt, null);
+        }
+    }
+
+    @Override
+    public Map<Integer, List<String>> findSubmittedStudentIds() throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        Map<Integer, List<String>> submitted = new HashMap<>();
+
+        try {
+            conn = dbManager.getConnection();
+            stmt = conn.prepareStatement("SELECT exam_id, student_id FROM exam_results");
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                submitted.computeIfAbsent(rs.getInt("exam_id"), id -> new ArrayList<>())
+                        .add(rs.getString("student_id"));
+            }
+
+            return submitted;
+        } finally {
+            dbManager.closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public ExamResult findResult(int examId, String studentId) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = dbManager.getConnection();
+            String sql = "SELECT er.*, s.name as student_name "
+                    + "FROM exam_results er "
+                    + "JOIN students s ON er.student_id = s.id "
+                    + "WHERE er.exam_id = ? AND er.student_id = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, examId);
+            stmt.setString(2, studentId);
+            rs = stmt.executeQuery();
+
+            return rs.next() ? readResult(rs) : null;
+        } finally {
+            dbManager.closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public List<ExamResult> findResults(int examId) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        List<ExamResult> results = new ArrayList<>();
+
+        try {
+            conn = dbManager.getConnection();
+            String sql = "SELECT er.*, s.name as student_name "
+                    + "FROM exam_results er "
+                    + "JOIN students s ON er.student_id = s.id "
+                    + "WHERE er.exam_id = ? "
+                    + "ORDER BY er.score DESC, er.id";
+
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, examId);
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                results.add(readResult(rs));
+            }
+
+            return results;
+        } finally {
+            dbManager.closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public ResultPage findResultsPage(int examId, int afterScore, int afterId, int pageSize) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        List<ExamResult> results = new ArrayList<>();
+
+        try {
+            conn = dbManager.getConnection();
+            // Seek past the cursor on the (exam_id, score, id) index instead of OFFSET,
+            // so deep pages cost the same as the first
+            String sql = "SELECT er.*, s.name as student_name "
+                    + "FROM exam_results er "
+                    + "JOIN students s ON er.student_id = s.id "
+                    + "WHERE er.exam_id = ? "
+                    + (afterId > 0 ? "AND (er.score < ? OR (er.score = ? AND er.id > ?)) " : "")
+                    + "ORDER BY er.score DESC, er.id "
+                    + "LIMIT ?";
+
+            stmt = conn.prepareStatement(sql);
+            int index = 1;
+            stmt.setInt(index++, examId);
+            if (afterId > 0) {
+                stmt.setInt(index++, afterScore);
+                stmt.setInt(index++, afterScore);
+                stmt.setInt(index++, afterId);
+            }
+            // One extra row tells us whether another page follows
+            stmt.setInt(index, pageSize + 1);
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                results.add(readResult(rs));
+            }
+
+            boolean hasMore = results.size() > pageSize;
+            if (hasMore) {
+                results.remove(pageSize);
+            }
+            return new ResultPage(results, hasMore);
+        } finally {
+            dbManager.closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public void saveSubmissions(List<Submission> batch) throws SQLException {
+        Connection conn = null;
+        PreparedStatement resultStmt = null;
+        PreparedStatement answerStmt = null;
+
+        try {
+            conn = dbManager.getConnection();
+            conn.setAutoCommit(false);
+
+            // Guarded insert so a submission replayed from the journal is never stored twice
+            String resultSql = "INSERT INTO exam_results (exam_id, student_id, score, total_possible, submission_time) "
+                    + "SELECT ?, ?, ?, ?, ? FROM DUAL "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM exam_results WHERE exam_id = ? AND student_id = ?)";
+            resultStmt = conn.prepareStatement(resultSql);
+
+            for (Submission submission : batch) {
+                resultStmt.setInt(1, submission.getExamId());
+                resultStmt.setString(2, submission.getStudentId());
+                resultStmt.setInt(3, submission.getScore());
+                resultStmt.setInt(4, submission.getTotalPossible());
+                resultStmt.setTimestamp(5, new Timestamp(submission.getSubmittedAt()));
+                resultStmt.setInt(6, submission.getExamId());
+                resultStmt.setString(7, submission.getStudentId());
+                resultStmt.addBatch();
+            }
+            int[] inserted = resultStmt.executeBatch();
+
+            String answerSql = "INSERT INTO student_answers (exam_id, student_id, question_id, selected_option) "
+                    + "VALUES (?, ?, ?, ?)";
+            answerStmt = conn.prepareStatement(answerSql);
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (inserted[i] == 0) {
+                    // Already stored by an earlier run
+                    continue;
+                }
+
+                Submission submission = batch.get(i);
+                int[] questionIds = submission.getQuestionIds();
+                int[] selectedOptions = submission.getSelectedOptions();
+                for (int j = 0; j < questionIds.length; j++) {
+                    answerStmt.setInt(1, submission.getExamId());
+                    answerStmt.setString(2, submission.getStudentId());
+                    answerStmt.setInt(3, questionIds[j]);
+                    answerStmt.setInt(4, selectedOptions[j]);
+                    answerStmt.addBatch();
+                }
+            }
+            answerStmt.executeBatch();
+
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            rollback(conn);
+            throw e;
+        } finally {
+            resetAutoCommit(conn);
+            dbManager.closeResources(null, answerStmt, null);
+            dbManager.closeResources(conn, resultStmt, null);
+        }
+    }
+
+    @Override
+    public void reportMetrics(Map<String, String> metrics) {
+        ConnectionPool.Stats pool = dbManager.getPoolStats();
+        if (pool == null) {
+            return;
+        }
+
+        metrics.put("DB pool: active connections", pool.getActive() + " / " + pool.getMaxSize());
+        metrics.put("DB pool: idle connections", String.valueOf(pool.getIdle()));
+        metrics.put("DB pool: threads waiting", String.valueOf(pool.getWaiting()));
+        metrics.put("DB pool: borrows", String.valueOf(pool.getBorrowCount()));
+        metrics.put("DB pool: average wait (us)", String.valueOf(pool.getAverageWaitMicros()));
+        metrics.put("DB pool: max wait (us)", String.valueOf(pool.getMaxWaitMicros()));
+        metrics.put("DB pool: wait timeouts", String.valueOf(pool.getTimeoutCount()));
+        metrics.put("DB pool: connections created", String.valueOf(pool.getCreatedCount()));
+        metrics.put("DB pool: connections discarded", String.valueOf(pool.getDiscardedCount()));
+        metrics.put("DB pool: leaks detected", String.valueOf(pool.getLeakCount()));
+        metrics.put("DB pool: leaked connections reclaimed", String.valueOf(pool.getReclaimedCount()));
+    }
+
+    @Override
+    public void close() {
+        DatabaseManager.shutdown();
+    }
+
+    private Exam readExam(ResultSet rs) throws SQLException {
+        Exam exam = new Exam(
+                rs.getInt("id"),
+                rs.getString("title"),
+                rs.getString("description"),
+                rs.getInt("duration_minutes"),
+                rs.getBoolean("results_visible")
+        );
+        exam.setVersion(rs.getInt("version"));
+        exam.setStartTime(rs.getTimestamp("start_time"));
+        return exam;
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+
+    private ExamResult readResult(ResultSet rs) throws SQLException {
+        return new ExamResult(
+                rs.getInt("id"),
+                rs.getInt("exam_id"),
+                rs.getString("student_id"),
+                rs.getString("student_name"),
+                rs.getInt("score"),
+                rs.getInt("total_possible"),
+                rs.getTimestamp("submission_time")
+        );
+    }
+
+    private void rollback(Connection conn) {
+        try {
+            if (conn != null) {
+                conn.rollback();
+            }
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void resetAutoCommit(Connection conn) {
+        try {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package server;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import shared.NioProtocol;
+import shared.RemoteExamService;
+import shared.ServerBusyException;
+
+/**
+ * Alternative to the RMI transport for large exam sittings. One selector
+ * thread owns every client socket and only moves bytes; decoded calls run
+ * on a small worker pool against the same admission-controlled service the
+ * RMI registry exports, so an idle connection costs a buffer rather than a
+ * thread. test/server/TransportLoadServer and the client project's
+ * TransportLoadClient measure both transports under held connections.
+ */
+public class NioExamServer {
+
+    // Matches the combined concurrency of the admission gates behind us
+    private static final int WORKER_THREADS = 64;
+    private static final int WORKER_QUEUE_SIZE = 4096;
+    private static final int INITIAL_READ_BUFFER = 8 * 1024;
+
+    private final RemoteExamService service;
+    private final int port;
+    private final ThreadPoolExecutor workers;
+    private final Queue<ClientConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running = false;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong acceptedConnections = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong protocolErrors = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong totalCallNanos = new AtomicLong();
+
+    public NioExamServer(RemoteExamService service, int port) {
+        this.service = service;
+        this.port = port;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(WORKER_QUEUE_SIZE), r -> {
+                    Thread thread = new Thread(r, "nio-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        selectorThread = new Thread(this::runSelector, "nio-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        workers.shutdownNow();
+    }
+
+    private void runSelector() {
+        try {
+            while (running) {
+                selector.select();
+                registerPendingWrites();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read((ClientConnection) key.attachment());
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write((ClientConnection) key.attachment());
+                            }
+                        }
+                    } catch (IOException e) {
+                        if (key.attachment() instanceof ClientConnection) {
+                            close((ClientConnection) key.attachment());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("NIO exam server stopped: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            ClientConnection connection = new ClientConnection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            openConnections.incrementAndGet();
+            acceptedConnections.incrementAndGet();
+        }
+    }
+
+    private void read(ClientConnection connection) throws IOException {
+        int read = connection.channel.read(connection.readBuffer);
+        if (read < 0) {
+            close(connection);
+            return;
+        }
+        bytesIn.addAndGet(read);
+
+        // Hand every complete frame to the workers; keep any partial one for the next read
+        ByteBuffer buffer = connection.readBuffer;
+        buffer.flip();
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt(buffer.position());
+            if (length < NioProtocol.REQUEST_HEADER_LENGTH || length > NioProtocol.MAX_FRAME_BYTES) {
+                protocolErrors.incrementAndGet();
+                throw new IOException("Bad frame length " + length);
+            }
+            if (buffer.remaining() < 4 + length) {
+                break;
+            }
+            buffer.position(buffer.position() + 4);
+            byte[] frame = new byte[length];
+            buffer.get(frame);
+            dispatch(connection, ByteBuffer.wrap(frame));
+        }
+        buffer.compact();
+
+        // Grow only for a frame larger than the buffer, and give the memory back once it is consumed
+        if (buffer.position() >= 4 && buffer.getInt(0) + 4 > buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.getInt(0) + 4);
+            buffer.flip();
+            larger.put(buffer);
+            connection.readBuffer = larger;
+        } else if (buffer.position() == 0 && buffer.capacity() > INITIAL_READ_BUFFER) {
+            connection.readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+        }
+    }
+
+    private void dispatch(ClientConnection connection, ByteBuffer frame) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            workers.execute(() -> handle(connection, frame));
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            respond(connection, NioProtocol.encodeResponse(frame.getLong(0), NioProtocol.STATUS_ERROR,
+                    new ServerBusyException("Server is busy (transport queue full)", 1000), false));
+        }
+    }
+
+    private void handle(ClientConnection connection, ByteBuffer frame) {
+        long start = System.nanoTime();
+        long callId = frame.getLong(0);
+        boolean compress = NioProtocol.acceptsDeflate(frame);
+        ByteBuffer response;
+        try {
+            try {
+                Method method = NioProtocol.methodAt(frame.getShort(8));
+                Object[] args = (Object[]) NioProtocol.readBody(frame, NioProtocol.REQUEST_HEADER_LENGTH);
+                Object result = method.invoke(service, args);
+                response = NioProtocol.encodeResponse(callId, NioProtocol.STATUS_OK, result, compress);
+            } catch (InvocationTargetException e) {
+                response = NioProtocol.encodeResponse(callId, NioProtocol.STATUS_ERROR, e.getCause(), compress);
+            } catch (IOException | IllegalAccessException | IllegalArgumentException | ClassCastException e) {
+                protocolErrors.incrementAndGet();
+                response = NioProtocol.encodeResponse(callId, NioProtocol.STATUS_ERROR,
+                        new RemoteException("Malformed request: " + e.getMessage()), false);
+            }
+        } catch (IOException e) {
+            // The result itself could not be encoded, e.g. it exceeds the frame limit
+            try {
+                response = NioProtocol.encodeResponse(callId, NioProtocol.STATUS_ERROR,
+                        new RemoteException("Could not encode response: " + e.getMessage()), false);
+            } catch (IOException unexpected) {
+                close(connection);
+                return;
+            }
+        }
+        totalCallNanos.addAndGet(System.nanoTime() - start);
+        respond(connection, response);
+    }
+
+    // Responses are written by the selector thread, which is woken to pick them up
+    private void respond(ClientConnection connection, ByteBuffer response) {
+        connection.outbound.add(response);
+        pendingWrites.add(connection);
+        selector.wakeup();
+    }
+
+    private void registerPendingWrites() {
+        ClientConnection connection;
+        while ((connection = pendingWrites.poll()) != null) {
+            if (connection.key.isValid()) {
+                connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    private void write(ClientConnection connection) throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = connection.outbound.peek()) != null) {
+            bytesOut.addAndGet(connection.channel.write(buffer));
+            if (buffer.hasRemaining()) {
+                return; // socket buffer full, wait for the next OP_WRITE
+            }
+            connection.outbound.poll();
+        }
+        connection.key.interestOps(SelectionKey.OP_READ);
+        // A worker may have queued a response after the loop above saw the queue empty
+        if (!connection.outbound.isEmpty()) {
+            connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void close(ClientConnection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        openConnections.decrementAndGet();
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Nothing more to do with a dead socket
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof ClientConnection) {
+                close((ClientConnection) key.attachment());
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            // Shutting down anyway
+        }
+    }
+
+    public void reportMetrics(Map<String, String> metrics) {
+        long requests = requestCount.get();
+        metrics.put("NIO: open connections", String.valueOf(openConnections.get()));
+        metrics.put("NIO: accepted connections", String.valueOf(acceptedConnections.get()));
+        metrics.put("NIO: requests", String.valueOf(requests));
+        metrics.put("NIO: worker queue", workers.getQueue().size() + " / " + WORKER_QUEUE_SIZE);
+        metrics.put("NIO: rejected (queue full)", String.valueOf(rejectedCount.get()));
+        metrics.put("NIO: protocol errors", String.valueOf(protocolErrors.get()));
+        metrics.put("NIO: bytes in / out", bytesIn.get() + " / " + bytesOut.get());
+        metrics.put("NIO: average call time (ms)",
+                requests > 0 ? String.format("%.2f", totalCallNanos.get() / 1e6 / requests) : "-");
+    }
+
+    private static class ClientConnection {
+
+        private final SocketChannel channel;
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+        private SelectionKey key;
+        private volatile boolean closed = false;
+
+        ClientConnection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
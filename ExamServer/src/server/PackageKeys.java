@@ -0,0 +1,59 @@
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Derives the key for each exam version's prefetch package from a server
+ * secret kept in the data directory. Keys are stable across cache reloads
+ * and restarts, so a package downloaded earlier still opens with the key
+ * released at the start time.
+ */
+public class PackageKeys {
+
+    private static final int SECRET_LENGTH = 32;
+
+    private final byte[] secret;
+
+    public PackageKeys(File dataDir) throws IOException {
+        this.secret = loadOrCreateSecret(new File(dataDir, "package.secret"));
+    }
+
+    private static byte[] loadOrCreateSecret(File file) throws IOException {
+        if (file.exists()) {
+            byte[] stored = Files.readAllBytes(file.toPath());
+            if (stored.length == SECRET_LENGTH) {
+                return stored;
+            }
+        }
+
+        byte[] created = new byte[SECRET_LENGTH];
+        new SecureRandom().nextBytes(created);
+
+        // Write then rename so a crash never leaves a truncated secret behind
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File temp = new File(parent, file.getName() + ".tmp");
+        Files.write(temp.toPath(), created);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return created;
+    }
+
+    // HMAC-SHA256(secret, examId || version): a 256-bit AES key per exam version
+    public byte[] keyFor(int examId, int examVersion) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac.doFinal(ByteBuffer.allocate(8).putInt(examId).putInt(examVersion).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package server;
+
+import java.util.Arrays;
+
+/**
+ * Answers a student has checkpointed during an exam, kept as an append-only
+ * log of (question index, option) pairs. Saving only ever appends; the
+ * current answers are rebuilt on demand by replaying the log, which is
+ * folded down to one entry per answered question once it grows past a few
+ * times the size of the exam.
+ */
+final class ProgressLog {
+
+    private static final int COMPACT_FACTOR = 4;
+
+    private final int questionCount;
+    private int[] entries;
+    private int size;
+
+    ProgressLog(int questionCount) {
+        this.questionCount = questionCount;
+        this.entries = new int[Math.max(8, questionCount * 2)];
+    }
+
+    synchronized void append(int[] questionIndexes, int[] selectedOptions) {
+        if (questionIndexes.length != selectedOptions.length) {
+            throw new IllegalArgumentException("Question and option arrays differ in length");
+        }
+        for (int questionIndex : questionIndexes) {
+            if (questionIndex < 0 || questionIndex >= questionCount) {
+                throw new IllegalArgumentException("Question index out of range: " + questionIndex);
+            }
+        }
+
+        int needed = size + questionIndexes.length * 2;
+        if (needed > entries.length) {
+            if (size / 2 >= questionCount * COMPACT_FACTOR) {
+                compact();
+                needed = size + questionIndexes.length * 2;
+            }
+            if (needed > entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(needed, entries.length * 2));
+            }
+        }
+
+        for (int i = 0; i < questionIndexes.length; i++) {
+            entries[size++] = questionIndexes[i];
+            entries[size++] = selectedOptions[i];
+        }
+    }
+
+    // Refills the log from answers in question order, as rebuilt from the session journal
+    synchronized void restore(int[] answers) {
+        size = 0;
+        for (int i = 0; i < answers.length && i < questionCount; i++) {
+            if (answers[i] != -1) {
+                entries[size++] = i;
+                entries[size++] = answers[i];
+            }
+        }
+    }
+
+    // Latest option per question in question order, -1 where nothing was saved
+    synchronized int[] toAnswers() {
+        int[] answers = new int[questionCount];
+        Arrays.fill(answers, -1);
+        for (int i = 0; i < size; i += 2) {
+            answers[entries[i]] = entries[i + 1];
+        }
+        return answers;
+    }
+
+    private void compact() {
+        int[] answers = toAnswers();
+        size = 0;
+        for (int i = 0; i < answers.length; i++) {
+            if (answers[i] != -1) {
+                entries[size++] = i;
+                entries[size++] = answers[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package server;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates and upgrades the exam_system schema. Each migration runs once and
+ * is recorded in schema_version; tables use IF NOT EXISTS so databases set
+ * up by hand before this existed are adopted rather than recreated.
+ * After migrating, the indexes the hot queries rely on are checked and a
+ * warning is printed for any that are missing.
+ */
+public class SchemaMigrator {
+
+    // Indexes required by the hot queries: table, column list (leading columns must match)
+    private static final String[][] REQUIRED_INDEXES = {
+        {"exam_results", "exam_id,student_id"},
+        {"exam_questions", "exam_id"},
+        {"question_options", "question_id,option_order"},
+        {"student_answers", "exam_id,student_id"},
+        {"exam_results", "exam_id,score,id"}
+    };
+
+    private final DatabaseManager dbManager;
+
+    public SchemaMigrator(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    public void migrate() throws SQLException {
+        Connection conn = null;
+
+        try {
+            conn = dbManager.getConnection();
+            execute(conn, "CREATE TABLE IF NOT EXISTS schema_version ("
+                    + "version INT NOT NULL PRIMARY KEY, "
+                    + "description VARCHAR(255) NOT NULL, "
+                    + "applied_at DATETIME NOT NULL)");
+
+            int current = currentVersion(conn);
+            for (Migration migration : migrations()) {
+                if (migration.version <= current) {
+                    continue;
+                }
+
+                System.out.println("Applying schema migration " + migration.version + ": " + migration.description);
+                migration.apply(conn);
+                recordVersion(conn, migration);
+            }
+        } finally {
+            dbManager.closeResources(conn, null, null);
+        }
+    }
+
+    // Returns the required indexes that are missing and prints a warning for each
+    public List<String> checkIndexes() throws SQLException {
+        List<String> missing = new ArrayList<>();
+        Connection conn = null;
+
+        try {
+            conn = dbManager.getConnection();
+            for (String[] index : REQUIRED_INDEXES) {
+                if (!hasIndex(conn, index[0], index[1])) {
+                    String description = index[0] + "(" + index[1].replace(",", ", ") + ")";
+                    missing.add(description);
+                    System.err.println("WARNING: missing index on " + description
+                            + "; queries on this table will do full scans");
+                }
+            }
+        } finally {
+            dbManager.closeResources(conn, null, null);
+        }
+
+        return missing;
+    }
+
+    private List<Migration> migrations() {
+        List<Migration> migrations = new ArrayList<>();
+
+        migrations.add(new Migration(1, "Base tables") {
+            @Override
+            void apply(Connection conn) throws SQLException {
+                execute(conn, "CREATE TABLE IF NOT EXISTS teachers ("
+                        + "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                        + "username VARCHAR(100) NOT NULL UNIQUE, "
+                        + "password VARCHAR(255) NOT NULL, "
+                        + "name VARCHAR(255))");
+                execute(conn, "CREATE TABLE IF NOT EXISTS students ("
+                        + "id VARCHAR(50) NOT NULL PRIMARY KEY, "
+                        + "username VARCHAR(100) NOT NULL UNIQUE, "
+                        + "password VARCHAR(255) NOT NULL, "
+                        + "name VARCHAR(255))");
+                execute(conn, "CREATE TABLE IF NOT EXISTS exams ("
+                        + "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                        + "title VARCHAR(255) NOT NULL, "
+                        + "description TEXT, "
+                        + "duration_minutes INT NOT NULL, "
+                        + "results_visible TINYINT(1) NOT NULL DEFAULT 0, "
+                        + "active TINYINT(1) NOT NULL DEFAULT 1)");
+                execute(conn, "CREATE TABLE IF NOT EXISTS questions ("
+                        + "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                        + "text TEXT NOT NULL, "
+                        + "correct_option INT NOT NULL, "
+                        + "points INT NOT NULL DEFAULT 1)");
+                execute(conn, "CREATE TABLE IF NOT EXISTS exam_questions ("
+                        + "exam_id INT NOT NULL, "
+                        + "question_id INT NOT NULL, "
+                        + "PRIMARY KEY (exam_id, question_id))");
+                execute(conn, "CREATE TABLE IF NOT EXISTS question_options ("
+                        + "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                        + "question_id INT NOT NULL, "
+                        + "option_text TEXT NOT NULL, "
+                        + "option_order INT NOT NULL)");
+                execute(conn, "CREATE TABLE IF NOT EXISTS exam_results ("
+                        + "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                        + "exam_id INT NOT NULL, "
+                        + "student_id VARCHAR(50) NOT NULL, "
+                        + "score INT NOT NULL, "
+                        + "total_possible INT NOT NULL, "
+                        + "submission_time DATETIME NOT NULL)");
+                execute(conn, "CREATE TABLE IF NOT EXISTS student_answers ("
+                        + "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                        + "exam_id INT NOT NULL, "
+                        + "student_id VARCHAR(50) NOT NULL, "
+                        + "question_id INT NOT NULL, "
+                        + "selected_option INT NOT NULL)");
+                execute(conn, "CREATE TABLE IF NOT EXISTS id_sequences ("
+                        + "name VARCHAR(64) NOT NULL PRIMARY KEY, "
+                        + "next_value BIGINT NOT NULL)");
+            }
+        });
+
+        migrations.add(new Migration(2, "Indexes for exam start, grading and result lookups") {
+            @Override
+            void apply(Connection conn) throws SQLException {
+                ensureIndex(conn, "exam_results", "uq_exam_results_exam_student", "exam_id,student_id", true);
+                ensureIndex(conn, "exam_questions", "idx_exam_questions_exam", "exam_id", false);
+                ensureIndex(conn, "question_options", "uq_question_options_order", "question_id,option_order", true);
+                ensureIndex(conn, "student_answers", "idx_student_answers_exam_student", "exam_id,student_id", false);
+            }
+        });
+
+        migrations.add(new Migration(3, "Exam version for incremental updates") {
+            @Override
+            void apply(Connection conn) throws SQLException {
+                if (!hasColumn(conn, "exams", "version")) {
+                    execute(conn, "ALTER TABLE exams ADD COLUMN version INT NOT NULL DEFAULT 1");
+                }
+            }
+        });
+
+        migrations.add(new Migration(4, "Index for keyset-paged results") {
+            @Override
+            void apply(Connection conn) throws SQLException {
+                ensureIndex(conn, "exam_results", "idx_exam_results_exam_score", "exam_id,score,id", false);
+            }
+        });
+
+        migrations.add(new Migration(5, "Optional exam start time for package prefetch") {
+            @Override
+            void apply(Connection conn) throws SQLException {
+                if (!hasColumn(conn, "exams", "start_time")) {
+                    execute(conn, "ALTER TABLE exams ADD COLUMN start_time DATETIME NULL");
+                }
+            }
+        });
+
+        return migrations;
+    }
+
+    private boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            String sql = "SELECT 1 FROM information_schema.columns "
+                    + "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            rs = stmt.executeQuery();
+            return rs.next();
+        } finally {
+            dbManager.closeResources(null, stmt, rs);
+        }
+    }
+
+    private void ensureIndex(Connection conn, String table, String name, String columns, boolean unique)
+            throws SQLException {
+        if (hasIndex(conn, table, columns)) {
+            return;
+        }
+
+        try {
+            execute(conn, "CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + name
+                    + " ON " + table + " (" + columns + ")");
+        } catch (SQLException e) {
+            // Typically duplicate rows blocking a unique index; the startup check will keep warning
+            System.err.println("Could not create index " + name + " on " + table + ": " + e.getMessage());
+        }
+    }
+
+    // True if some index on the table starts with exactly these columns, in order
+    private boolean hasIndex(Connection conn, String table, String columns) throws SQLException {
+        String[] wanted = columns.split(",");
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            String sql = "SELECT index_name, seq_in_index, column_name FROM information_schema.statistics "
+                    + "WHERE table_schema = DATABASE() AND table_name = ? "
+                    + "ORDER BY index_name, seq_in_index";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, table);
+            rs = stmt.executeQuery();
+
+            String currentIndex = null;
+            int matched = 0;
+            while (rs.next()) {
+                String indexName = rs.getString("index_name");
+                if (!indexName.equals(currentIndex)) {
+                    currentIndex = indexName;
+                    matched = 0;
+                }
+
+                int position = rs.getInt("seq_in_index");
+                if (position == matched + 1 && matched < wanted.length
+                        && wanted[matched].trim().equalsIgnoreCase(rs.getString("column_name"))) {
+                    matched++;
+                    if (matched == wanted.length) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            dbManager.closeResources(null, stmt, rs);
+        }
+    }
+
+    private int currentVersion(Connection conn) throws SQLException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            stmt = conn.prepareStatement("SELECT COALESCE(MAX(version), 0) FROM schema_version");
+            rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } finally {
+            dbManager.closeResources(null, stmt, rs);
+        }
+    }
+
+    private void recordVersion(Connection conn, Migration migration) throws SQLException {
+        PreparedStatement stmt = null;
+
+        try {
+            stmt = conn.prepareStatement("INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, NOW())");
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.executeUpdate();
+        } finally {
+            dbManager.closeResources(null, stmt, null);
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    private abstract static class Migration {
+
+        private final int version;
+        private final String description;
+
+        Migration(int version, String description) {
+            this.version = version;
+            this.description = description;
+        }
+
+        abstract void apply(Connection conn) throws SQLException;
+    }
+}
@@ -3,7 +3,10 @@ package server;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicInteger;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -19,8 +22,9 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import shared.Exam;
 import shared.ExamResult;
+import shared.ExamResultStream;
 
-public class ServerMainController implements Initializable {
+public class ServerMainController implements Initializable, ActivityLog {
 
     @FXML
     private Label statusLabel;
@@ -68,6 +72,17 @@ public class ServerMainController implements Initializable {
     private TableColumn<ActiveSessionDisplay, String> sessionStartTimeColumn;
     @FXML
     private TableColumn<ActiveSessionDisplay, String> sessionTimeRemainingColumn;
+    @FXML
+    private TableColumn<ActiveSessionDisplay, String> sessionLastHeartbeatColumn;
+    @FXML
+    private TableColumn<ActiveSessionDisplay, String> sessionLeaseColumn;
+
+    @FXML
+    private TableView<MetricDisplay> metricsTable;
+    @FXML
+    private TableColumn<MetricDisplay, String> metricNameColumn;
+    @FXML
+    private TableColumn<MetricDisplay, String> metricValueColumn;
 
     @FXML
     private TextArea logTextArea;
@@ -76,6 +91,10 @@ public class ServerMainController implements Initializable {
     private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
     private String loggedInTeacher;
 
+    // Results are loaded in pages so large exams fill the table progressively
+    private static final int RESULTS_PAGE_SIZE = 200;
+    private final AtomicInteger resultsLoadGeneration = new AtomicInteger();
+
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         // Initialize table columns
@@ -97,6 +116,11 @@ public class ServerMainController implements Initializable {
         sessionExamTitleColumn.setCellValueFactory(new PropertyValueFactory<>("examTitle"));
         sessionStartTimeColumn.setCellValueFactory(new PropertyValueFactory<>("startTime"));
         sessionTimeRemainingColumn.setCellValueFactory(new PropertyValueFactory<>("timeRemaining"));
+        sessionLastHeartbeatColumn.setCellValueFactory(new PropertyValueFactory<>("lastHeartbeat"));
+        sessionLeaseColumn.setCellValueFactory(new PropertyValueFactory<>("leaseRemaining"));
+
+        metricNameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
+        metricValueColumn.setCellValueFactory(new PropertyValueFactory<>("value"));
 
         // Log server start
         logActivity("Server started");
@@ -113,6 +137,7 @@ public class ServerMainController implements Initializable {
         statusLabel.setText("Logged in as: " + username);
     }
 
+    @Override
     public void logActivity(String message) {
         Platform.runLater(() -> {
             String timestamp = timeFormat.format(new Date());
@@ -158,7 +183,7 @@ public class ServerMainController implements Initializable {
 
             ExamEditorController controller = loader.getController();
             controller.setExamService(examService);
-            controller.loadExam(selectedExam);
+            controller.loadExam(examService.getExamForEditing(selectedExam.getId()));
 
             Stage stage = new Stage();
             stage.initModality(Modality.APPLICATION_MODAL);
@@ -245,6 +270,11 @@ public class ServerMainController implements Initializable {
         refreshSessions();
     }
 
+    @FXML
+    private void handleRefreshMetrics(ActionEvent event) {
+        refreshMetrics();
+    }
+
     @FXML
     private void handleClearLog(ActionEvent event) {
         logTextArea.clear();
@@ -274,12 +304,7 @@ public class ServerMainController implements Initializable {
 
     private void refreshExams() {
         try {
-            // This would normally call examService.getAllExams()
-            // For now, we'll use dummy data
-            ObservableList<Exam> exams = FXCollections.observableArrayList();
-            // Add some dummy exams
-            exams.add(new Exam(1, "Java Basics", "Introduction to Java programming", 60, true));
-            exams.add(new Exam(2, "Networking Fundamentals", "Basic networking concepts", 45, false));
+            ObservableList<Exam> exams = FXCollections.observableArrayList(examService.getAllExams());
 
             examsTable.setItems(exams);
             examSelector.setItems(exams);
@@ -298,33 +323,48 @@ public class ServerMainController implements Initializable {
             return;
         }
 
-        try {
-            // This would normally call examService.getExamResults(selectedExam.getId())
-            // For now, we'll use dummy data
-            ObservableList<ExamResult> results = FXCollections.observableArrayList();
-            // Add some dummy results
-            results.add(new ExamResult(1, selectedExam.getId(), "S001", "John Doe", 85, 100, new Date()));
-            results.add(new ExamResult(2, selectedExam.getId(), "S002", "Jane Smith", 92, 100, new Date()));
+        ObservableList<ExamResult> results = FXCollections.observableArrayList();
+        resultsTable.setItems(results);
 
-            resultsTable.setItems(results);
+        // Pages are fetched off the FX thread and appended as they arrive; a newer
+        // refresh bumps the generation so a stale loader stops at its next page
+        int generation = resultsLoadGeneration.incrementAndGet();
+        ExamResultStream stream = new ExamResultStream(examService, selectedExam.getId(), RESULTS_PAGE_SIZE);
 
-            logActivity("Refreshed results for exam: " + selectedExam.getTitle());
-        } catch (Exception e) {
-            logActivity("Error refreshing results: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "Error", "Could not refresh results", e.getMessage());
-        }
+        Thread loader = new Thread(() -> {
+            try {
+                while (stream.hasMorePages() && generation == resultsLoadGeneration.get()) {
+                    List<ExamResult> page = stream.nextPage();
+                    Platform.runLater(() -> {
+                        if (generation == resultsLoadGeneration.get()) {
+                            results.addAll(page);
+                        }
+                    });
+                }
+                Platform.runLater(() -> logActivity("Refreshed results for exam: " + selectedExam.getTitle()));
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    logActivity("Error refreshing results: " + e.getMessage());
+                    showAlert(Alert.AlertType.ERROR, "Error", "Could not refresh results", e.getMessage());
+                });
+            }
+        }, "results-loader");
+        loader.setDaemon(true);
+        loader.start();
     }
 
     private void refreshSessions() {
         try {
-            // This would normally get active sessions from the exam service
-            // For now, we'll use dummy data
             ObservableList<ActiveSessionDisplay> sessions = FXCollections.observableArrayList();
-            // Add some dummy sessions
-            sessions.add(new ActiveSessionDisplay("S003", 1, "Java Basics",
-                    "2023-05-10 10:30:00", "25:30"));
-            sessions.add(new ActiveSessionDisplay("S004", 2, "Networking Fundamentals",
-                    "2023-05-10 10:45:00", "40:15"));
+            long now = System.currentTimeMillis();
+            for (ActiveSessionInfo session : examService.getActiveSessions()) {
+                sessions.add(new ActiveSessionDisplay(session.getStudentId(), session.getExamId(),
+                        session.getExamTitle(),
+                        timeFormat.format(new Date(session.getStartTime())),
+                        formatDuration(session.getDeadline() - now),
+                        Math.max(0, now - session.getLastHeartbeat()) / 1000 + " s ago",
+                        formatDuration(session.getLeaseExpiresAt() - now)));
+            }
 
             sessionsTable.setItems(sessions);
 
@@ -335,6 +375,29 @@ public class ServerMainController implements Initializable {
         }
     }
 
+    // mm:ss, or "expired" once the time has passed
+    private static String formatDuration(long millis) {
+        if (millis <= 0) {
+            return "expired";
+        }
+        long seconds = millis / 1000;
+        return String.format("%02d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private void refreshMetrics() {
+        try {
+            ObservableList<MetricDisplay> metrics = FXCollections.observableArrayList();
+            for (Map.Entry<String, String> entry : examService.getServerMetrics().entrySet()) {
+                metrics.add(new MetricDisplay(entry.getKey(), entry.getValue()));
+            }
+
+            metricsTable.setItems(metrics);
+        } catch (Exception e) {
+            logActivity("Error refreshing metrics: " + e.getMessage());
+            showAlert(Alert.AlertType.ERROR, "Error", "Could not refresh metrics", e.getMessage());
+        }
+    }
+
     private void showAlert(Alert.AlertType type, String title, String header, String content) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
@@ -351,14 +414,18 @@ public class ServerMainController implements Initializable {
         private final String examTitle;
         private final String startTime;
         private final String timeRemaining;
+        private final String lastHeartbeat;
+        private final String leaseRemaining;
 
         public ActiveSessionDisplay(String studentId, int examId, String examTitle,
-                String startTime, String timeRemaining) {
+                String startTime, String timeRemaining, String lastHeartbeat, String leaseRemaining) {
             this.studentId = studentId;
             this.examId = examId;
             this.examTitle = examTitle;
             this.startTime = startTime;
             this.timeRemaining = timeRemaining;
+            this.lastHeartbeat = lastHeartbeat;
+            this.leaseRemaining = leaseRemaining;
         }
 
         public String getStudentId() {
@@ -380,5 +447,33 @@ public class ServerMainController implements Initializable {
         public String getTimeRemaining() {
             return timeRemaining;
         }
+
+        public String getLastHeartbeat() {
+            return lastHeartbeat;
+        }
+
+        public String getLeaseRemaining() {
+            return leaseRemaining;
+        }
+    }
+
+    // Class to display server metrics in the table
+    public static class MetricDisplay {
+
+        private final String name;
+        private final String value;
+
+        public MetricDisplay(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getValue() {
+            return value;
+        }
     }
 }
@@ -0,0 +1,591 @@
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped, append-only log of the exam sessions in progress, so a
+ * server restart mid-exam does not lose them. A session is a START record
+ * followed by PROGRESS records for its checkpointed answers and an END
+ * record once it is submitted or reaped. Appends are plain writes into the
+ * mapping; a background thread forces dirty pages once a second and
+ * rewrites the log with only the live sessions once most of it is dead.
+ * A rewrite goes to the next numbered file, whose header is written last,
+ * so a crash part way through leaves the previous file to recover from.
+ * The content of each exam version a live session was started on is
+ * pinned in a file of its own, so the session can be restored after the
+ * exam has been edited.
+ *
+ * Record layout: [int length][int crc32][byte type][payload], length 0 ends the log
+ */
+final class SessionJournal {
+
+    private static final String FILE_PREFIX = "sessions.";
+    private static final String FILE_SUFFIX = ".journal";
+    private static final String LOCK_FILE = "sessions.lock";
+    private static final String PIN_PREFIX = "exam-";
+    private static final String PIN_SUFFIX = ".pinned";
+    private static final int MAGIC = 0x45534a31; // "ESJ1"
+    private static final int FILE_HEADER_LENGTH = 8;
+    private static final int RECORD_HEADER_LENGTH = 8;
+
+    private static final byte START = 1;
+    private static final byte PROGRESS = 2;
+    private static final byte END = 3;
+
+    private static final int MIN_CAPACITY = 4 * 1024 * 1024;
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
+    private static final long COMPACT_INTERVAL_MILLIS = 30 * 1000;
+    private static final int MIN_COMPACT_BYTES = 1024 * 1024;
+
+    private final File directory;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    // Live sessions by journal id, with the answers their PROGRESS records add up to
+    private final Map<Integer, Entry> live = new HashMap<>();
+    private int nextId;
+    private boolean dirty;
+
+    // Exam versions pinned since the last compaction, packed as in pinKey()
+    private final Set<Long> pinned = new HashSet<>();
+
+    private final ScheduledExecutorService maintenance;
+    private long compactions;
+    private long recordsAppended;
+
+    SessionJournal(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create journal directory " + directory);
+        }
+        this.directory = directory;
+
+        // A second instance would compact over this one's generations and delete the file it maps
+        this.lockChannel = FileChannel.open(new File(directory, LOCK_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null; // held elsewhere in this JVM
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IOException("Session journal in " + directory + " is already in use by another exam service");
+        }
+        this.lock = acquired;
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Reads back the sessions that never ended and starts a fresh file holding only them
+    synchronized List<Entry> recover() throws IOException {
+        // The newest complete generation wins; older ones are deleted by the next compaction
+        for (long candidate : listGenerations()) {
+            File file = fileFor(candidate);
+            try (FileChannel existing = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                if (existing.size() < FILE_HEADER_LENGTH) {
+                    continue;
+                }
+                MappedByteBuffer in = existing.map(FileChannel.MapMode.READ_ONLY, 0, existing.size());
+                if (in.getInt() != MAGIC) {
+                    System.err.println("Session journal: skipping incomplete " + file);
+                    continue;
+                }
+                in.getInt(); // reserved
+                replay(in);
+                generation = candidate;
+                break;
+            }
+        }
+
+        compact();
+        maintenance.scheduleWithFixedDelay(this::sync,
+                SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::compactIfMostlyDead,
+                COMPACT_INTERVAL_MILLIS, COMPACT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        List<Entry> recovered = new ArrayList<>(live.size());
+        for (Entry entry : live.values()) {
+            recovered.add(entry.copy());
+        }
+        return recovered;
+    }
+
+    private void replay(MappedByteBuffer in) {
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= RECORD_HEADER_LENGTH) {
+            int start = in.position();
+            int length = in.getInt();
+            int expectedCrc = in.getInt();
+            if (length <= 0 || length > in.remaining()) {
+                break;
+            }
+
+            ByteBuffer body = (ByteBuffer) in.slice().limit(length);
+            crc.reset();
+            updateCrc(crc, body);
+            if ((int) crc.getValue() != expectedCrc) {
+                System.err.println("Session journal: discarding damaged record at offset " + start);
+                break;
+            }
+            in.position(in.position() + length);
+
+            try {
+                apply(body);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                System.err.println("Session journal: discarding malformed record at offset " + start);
+                break;
+            }
+        }
+    }
+
+    private void apply(ByteBuffer body) {
+        byte type = body.get();
+        int id = body.getInt();
+        nextId = Math.max(nextId, id + 1);
+
+        if (type == START) {
+            int examId = body.getInt();
+            int examVersion = body.getInt();
+            long startTime = body.getLong();
+            long durationMillis = body.getLong();
+            int questionCount = body.getInt();
+            byte[] student = new byte[body.getShort() & 0xffff];
+            body.get(student);
+            live.put(id, new Entry(id, examId, examVersion, new String(student, StandardCharsets.UTF_8),
+                    startTime, durationMillis, questionCount));
+        } else if (type == PROGRESS) {
+            Entry entry = live.get(id);
+            int count = body.getInt();
+            for (int i = 0; i < count; i++) {
+                int questionIndex = body.getInt();
+                int option = body.getInt();
+                if (entry != null && questionIndex >= 0 && questionIndex < entry.answers.length) {
+                    entry.answers[questionIndex] = option;
+                }
+            }
+        } else if (type == END) {
+            live.remove(id);
+        } else {
+            throw new IllegalArgumentException("Unknown record type " + type);
+        }
+    }
+
+    // Returns the id later records for this session refer to; examContent is pinned for the version
+    synchronized int recordStart(int examId, int examVersion, String studentId, long startTime,
+            long durationMillis, int questionCount, byte[] examContent) throws IOException {
+        pin(examId, examVersion, examContent);
+
+        byte[] student = studentId.getBytes(StandardCharsets.UTF_8);
+        Entry entry = new Entry(nextId++, examId, examVersion, studentId, startTime, durationMillis, questionCount);
+
+        ByteBuffer record = beginRecord(START, entry.id, 30 + student.length);
+        writeStart(record, entry, student);
+        live.put(entry.id, entry);
+        endRecord(record);
+        return entry.id;
+    }
+
+    synchronized void recordProgress(int id, int[] questionIndexes, int[] selectedOptions) throws IOException {
+        Entry entry = live.get(id);
+        if (entry == null) {
+            return;
+        }
+
+        ByteBuffer record = beginRecord(PROGRESS, id, 4 + questionIndexes.length * 8);
+        record.putInt(questionIndexes.length);
+        for (int i = 0; i < questionIndexes.length; i++) {
+            record.putInt(questionIndexes[i]);
+            record.putInt(selectedOptions[i]);
+            entry.answers[questionIndexes[i]] = selectedOptions[i];
+        }
+        endRecord(record);
+    }
+
+    synchronized void recordEnd(int id) throws IOException {
+        if (live.remove(id) == null) {
+            return;
+        }
+        endRecord(beginRecord(END, id, 0));
+    }
+
+    // Reserves space for a record at the end of the log, compacting or growing the file if it is full
+    private ByteBuffer beginRecord(byte type, int id, int payloadLength) throws IOException {
+        int length = 5 + payloadLength;
+        if (buffer.remaining() < RECORD_HEADER_LENGTH + length + RECORD_HEADER_LENGTH) {
+            compact(RECORD_HEADER_LENGTH + length);
+        }
+
+        ByteBuffer record = (ByteBuffer) buffer.slice().limit(RECORD_HEADER_LENGTH + length);
+        record.putInt(length);
+        record.putInt(0); // crc, filled in by endRecord
+        record.put(type);
+        record.putInt(id);
+        return record;
+    }
+
+    // The length was written first, but a record only counts once its crc matches
+    private void endRecord(ByteBuffer record) {
+        CRC32 crc = new CRC32();
+        ByteBuffer body = record.duplicate();
+        body.flip().position(RECORD_HEADER_LENGTH);
+        updateCrc(crc, body);
+        record.putInt(4, (int) crc.getValue());
+
+        buffer.position(buffer.position() + record.limit());
+        recordsAppended++;
+        dirty = true;
+    }
+
+    private static void writeStart(ByteBuffer record, Entry entry, byte[] student) {
+        record.putInt(entry.examId);
+        record.putInt(entry.examVersion);
+        record.putLong(entry.startTime);
+        record.putLong(entry.durationMillis);
+        record.putInt(entry.answers.length);
+        record.putShort((short) student.length);
+        record.put(student);
+    }
+
+    private static void updateCrc(CRC32 crc, ByteBuffer body) {
+        byte[] chunk = new byte[Math.min(body.remaining(), 4096)];
+        ByteBuffer copy = body.duplicate();
+        while (copy.hasRemaining()) {
+            int n = Math.min(chunk.length, copy.remaining());
+            copy.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+    }
+
+    private void compact() throws IOException {
+        compact(0);
+    }
+
+    // Writes the live sessions to the next generation and switches to it once that is complete
+    private void compact(int reserve) throws IOException {
+        List<byte[]> students = new ArrayList<>(live.size());
+        long liveBytes = FILE_HEADER_LENGTH;
+        for (Entry entry : live.values()) {
+            byte[] student = entry.studentId.getBytes(StandardCharsets.UTF_8);
+            students.add(student);
+            liveBytes += startRecordLength(student) + progressRecordLength(entry.answeredCount());
+        }
+
+        // Leave at least as much room again for new records, so compaction does not run on every append
+        long capacity = Math.max(MIN_CAPACITY, buffer != null ? buffer.capacity() : 0);
+        while (capacity < 2 * (liveBytes + reserve + RECORD_HEADER_LENGTH)) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Session journal would exceed " + Integer.MAX_VALUE + " bytes");
+        }
+
+        long nextGeneration = generation + 1;
+        File next = fileFor(nextGeneration);
+        FileChannel out = FileChannel.open(next.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer previous = buffer;
+        MappedByteBuffer mapped;
+        try {
+            mapped = out.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            mapped.position(FILE_HEADER_LENGTH);
+            buffer = mapped; // endRecord appends to the current buffer
+
+            int i = 0;
+            for (Entry entry : live.values()) {
+                byte[] student = students.get(i++);
+                ByteBuffer record = (ByteBuffer) buffer.slice().limit(startRecordLength(student));
+                record.putInt(record.limit() - RECORD_HEADER_LENGTH).putInt(0).put(START).putInt(entry.id);
+                writeStart(record, entry, student);
+                endRecord(record);
+
+                int answered = entry.answeredCount();
+                if (answered > 0) {
+                    record = (ByteBuffer) buffer.slice().limit(progressRecordLength(answered));
+                    record.putInt(record.limit() - RECORD_HEADER_LENGTH).putInt(0).put(PROGRESS).putInt(entry.id);
+                    record.putInt(answered);
+                    for (int q = 0; q < entry.answers.length; q++) {
+                        if (entry.answers[q] != -1) {
+                            record.putInt(q).putInt(entry.answers[q]);
+                        }
+                    }
+                    endRecord(record);
+                }
+            }
+
+            // Only a file whose records are all on disk gets the header that makes it recoverable
+            mapped.force();
+            mapped.putInt(0, MAGIC);
+            mapped.force();
+        } catch (IOException | RuntimeException e) {
+            buffer = previous;
+            out.close();
+            next.delete();
+            throw e;
+        }
+
+        if (channel != null) {
+            channel.close();
+        }
+        channel = out;
+        generation = nextGeneration;
+        dirty = false;
+        compactions++;
+
+        // Fails on Windows while an old mapping is still referenced; retried after the next compaction
+        for (long old : listGenerations()) {
+            if (old < generation) {
+                fileFor(old).delete();
+            }
+        }
+        prunePins();
+    }
+
+    // Written once per version, before the first START that relies on it
+    private void pin(int examId, int examVersion, byte[] examContent) throws IOException {
+        if (pinned.contains(pinKey(examId, examVersion))) {
+            return;
+        }
+        File file = pinFileFor(examId, examVersion);
+        if (!file.exists()) {
+            File temp = new File(file.getPath() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer content = ByteBuffer.wrap(examContent);
+                while (content.hasRemaining()) {
+                    out.write(content);
+                }
+                out.force(true);
+            }
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        pinned.add(pinKey(examId, examVersion));
+    }
+
+    // The content pinned for an exam version, or null if none was
+    synchronized byte[] readPinnedExam(int examId, int examVersion) throws IOException {
+        File file = pinFileFor(examId, examVersion);
+        return file.exists() ? Files.readAllBytes(file.toPath()) : null;
+    }
+
+    // Drops the pins no live session refers to any more
+    private void prunePins() {
+        Set<Long> inUse = new HashSet<>();
+        for (Entry entry : live.values()) {
+            inUse.add(pinKey(entry.examId, entry.examVersion));
+        }
+        pinned.retainAll(inUse);
+
+        String[] names = directory.list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            if (!name.startsWith(PIN_PREFIX) || !name.endsWith(PIN_SUFFIX)) {
+                continue;
+            }
+            String[] parts = name.substring(PIN_PREFIX.length(), name.length() - PIN_SUFFIX.length()).split("-v");
+            try {
+                if (parts.length == 2 && !inUse.contains(pinKey(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])))) {
+                    new File(directory, name).delete();
+                }
+            } catch (NumberFormatException e) {
+                // Not one of ours
+            }
+        }
+    }
+
+    private File pinFileFor(int examId, int examVersion) {
+        return new File(directory, PIN_PREFIX + examId + "-v" + examVersion + PIN_SUFFIX);
+    }
+
+    private static long pinKey(int examId, int examVersion) {
+        return ((long) examId << 32) | (examVersion & 0xFFFFFFFFL);
+    }
+
+    private File fileFor(long fileGeneration) {
+        return new File(directory, FILE_PREFIX + fileGeneration + FILE_SUFFIX);
+    }
+
+    // Generations present on disk, newest first
+    private List<Long> listGenerations() {
+        List<Long> generations = new ArrayList<>();
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX)) {
+                    try {
+                        generations.add(Long.parseLong(
+                                name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            }
+        }
+        generations.sort(Collections.reverseOrder());
+        return generations;
+    }
+
+    private static int startRecordLength(byte[] student) {
+        return RECORD_HEADER_LENGTH + 5 + 30 + student.length;
+    }
+
+    private static int progressRecordLength(int answered) {
+        return RECORD_HEADER_LENGTH + 5 + 4 + answered * 8;
+    }
+
+    private synchronized void sync() {
+        if (dirty) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    private synchronized void compactIfMostlyDead() {
+        long liveBytes = FILE_HEADER_LENGTH;
+        for (Entry entry : live.values()) {
+            liveBytes += startRecordLength(entry.studentId.getBytes(StandardCharsets.UTF_8))
+                    + progressRecordLength(entry.answeredCount());
+        }
+        if (buffer.position() > MIN_COMPACT_BYTES && buffer.position() > 2 * liveBytes) {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("Session journal: compaction failed: " + e.getMessage());
+            }
+        }
+    }
+
+    synchronized int getLiveCount() {
+        return live.size();
+    }
+
+    synchronized long getSizeBytes() {
+        return buffer != null ? buffer.position() : 0;
+    }
+
+    synchronized long getCapacityBytes() {
+        return buffer != null ? buffer.capacity() : 0;
+    }
+
+    synchronized long getCompactionCount() {
+        return compactions;
+    }
+
+    synchronized long getRecordsAppended() {
+        return recordsAppended;
+    }
+
+    // Live sessions stay in the file for the next start
+    synchronized void close() throws IOException {
+        maintenance.shutdownNow();
+        if (buffer != null) {
+            buffer.force();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        lock.release();
+        lockChannel.close();
+    }
+
+    // A session as recorded, with its checkpointed answers in question order (-1 unanswered)
+    static final class Entry {
+
+        private final int id;
+        private final int examId;
+        private final int examVersion;
+        private final String studentId;
+        private final long startTime;
+        private final long durationMillis;
+        private final int[] answers;
+
+        private Entry(int id, int examId, int examVersion, String studentId, long startTime,
+                long durationMillis, int questionCount) {
+            this.id = id;
+            this.examId = examId;
+            this.examVersion = examVersion;
+            this.studentId = studentId;
+            this.startTime = startTime;
+            this.durationMillis = durationMillis;
+            this.answers = new int[questionCount];
+            Arrays.fill(answers, -1);
+        }
+
+        private Entry copy() {
+            Entry copy = new Entry(id, examId, examVersion, studentId, startTime, durationMillis, answers.length);
+            System.arraycopy(answers, 0, copy.answers, 0, answers.length);
+            return copy;
+        }
+
+        private int answeredCount() {
+            int answered = 0;
+            for (int answer : answers) {
+                if (answer != -1) {
+                    answered++;
+                }
+            }
+            return answered;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        int getExamId() {
+            return examId;
+        }
+
+        int getExamVersion() {
+            return examVersion;
+        }
+
+        String getStudentId() {
+            return studentId;
+        }
+
+        long getStartTime() {
+            return startTime;
+        }
+
+        long getDurationMillis() {
+            return durationMillis;
+        }
+
+        int[] getAnswers() {
+            return answers;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing hash table of active sessions keyed by a packed long
+ * (student index in the high half, exam id in the low half). Keys and
+ * values live in two parallel arrays rather than one node object per
+ * entry, and a lookup never locks or allocates. Writers lock only the one
+ * of SEGMENTS stripes their key hashes to, so starts and submits for
+ * different students do not contend; a slot keeps its key after removal
+ * so the same student and exam can reuse it, and growing a stripe drops
+ * the empty slots.
+ */
+class SessionTable<V> {
+
+    private static final long EMPTY = -1L;
+    private static final int SEGMENTS = 32;
+    private static final int MIN_CAPACITY = 16;
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    SessionTable() {
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    static long key(int studentIndex, int examId) {
+        return ((long) studentIndex << 32) | (examId & 0xFFFFFFFFL);
+    }
+
+    // 64-bit finalizer from MurmurHash3, so both halves of the key reach every bit.
+    // High bits pick the stripe, low bits the slot within it.
+    private static long hash(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> 59) & (SEGMENTS - 1)];
+    }
+
+    V get(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    V put(long key, V value) {
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    V putIfAbsent(long key, V value) {
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    boolean remove(long key, V expected) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(key, hash, expected);
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.live;
+        }
+        return size;
+    }
+
+    void forEach(Consumer<V> action) {
+        for (Segment<V> segment : segments) {
+            Slots<V> current = segment.slots;
+            for (int i = 0; i < current.capacity; i++) {
+                V value = current.values.get(i);
+                if (value != null) {
+                    action.accept(value);
+                }
+            }
+        }
+    }
+
+    private static class Segment<V> {
+
+        private volatile Slots<V> slots = new Slots<>(MIN_CAPACITY);
+        private volatile int live = 0;
+
+        V get(long key, long hash) {
+            while (true) {
+                Slots<V> current = slots;
+                V value = current.get(key, hash);
+                // A table replaced mid-read may miss later writes, so read the new one instead
+                if (!current.moved) {
+                    return value;
+                }
+            }
+        }
+
+        synchronized V put(long key, long hash, V value, boolean onlyIfAbsent) {
+            ensureCapacity();
+            int slot = slots.claim(key, hash);
+            V previous = slots.values.get(slot);
+            if (previous == null || !onlyIfAbsent) {
+                slots.values.set(slot, value);
+            }
+            if (previous == null) {
+                live++;
+            }
+            return previous;
+        }
+
+        synchronized boolean remove(long key, long hash, V expected) {
+            int slot = slots.find(key, hash);
+            if (slot < 0 || !slots.values.compareAndSet(slot, expected, null)) {
+                return false;
+            }
+            live--;
+            return true;
+        }
+
+        // Keeps used key slots under 60% of capacity; rebuilding keeps only live entries, at most half full
+        private void ensureCapacity() {
+            Slots<V> current = slots;
+            if ((current.used + 1) * 10 < current.capacity * 6) {
+                return;
+            }
+
+            int capacity = current.capacity;
+            while ((live + 1) * 2 >= capacity) {
+                capacity *= 2;
+            }
+            Slots<V> larger = new Slots<>(capacity);
+            for (int i = 0; i < current.capacity; i++) {
+                V value = current.values.get(i);
+                if (value != null) {
+                    long key = current.keys.get(i);
+                    larger.values.set(larger.claim(key, hash(key)), value);
+                }
+            }
+            current.moved = true;
+            slots = larger;
+        }
+    }
+
+    private static class Slots<V> {
+
+        private final int capacity;
+        private final AtomicLongArray keys;
+        private final AtomicReferenceArray<V> values;
+        private int used = 0;
+        private volatile boolean moved = false;
+
+        Slots(int capacity) {
+            this.capacity = capacity;
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicReferenceArray<>(capacity);
+            for (int i = 0; i < capacity; i++) {
+                keys.set(i, EMPTY);
+            }
+        }
+
+        V get(long key, long hash) {
+            int slot = find(key, hash);
+            return slot >= 0 ? values.get(slot) : null;
+        }
+
+        int find(long key, long hash) {
+            for (int i = (int) hash & (capacity - 1), probes = 0; probes < capacity;
+                    i = (i + 1) & (capacity - 1), probes++) {
+                long k = keys.get(i);
+                if (k == key) {
+                    return i;
+                }
+                if (k == EMPTY) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        // The slot for this key, taking an empty one if the key is new; callers hold the segment lock
+        int claim(long key, long hash) {
+            for (int i = (int) hash & (capacity - 1); ; i = (i + 1) & (capacity - 1)) {
+                long k = keys.get(i);
+                if (k == key) {
+                    return i;
+                }
+                if (k == EMPTY) {
+                    keys.set(i, key);
+                    used++;
+                    return i;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns each student id a small int the first time it starts an exam,
+ * so session keys can be packed into a long. Looking up an id that is
+ * already known allocates nothing; unknown ids are only added by intern().
+ */
+class StudentIndex {
+
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+    private int nextIndex = 0;
+
+    int intern(String studentId) {
+        Integer index = indexes.get(studentId);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            return indexes.computeIfAbsent(studentId, id -> nextIndex++);
+        }
+    }
+
+    // The index of a student already seen, or -1
+    int find(String studentId) {
+        Integer index = indexes.get(studentId);
+        return index != null ? index : -1;
+    }
+
+    int size() {
+        return indexes.size();
+    }
+}
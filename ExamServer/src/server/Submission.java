@@ -0,0 +1,67 @@
+package server;
+
+/**
+ * A graded exam submission waiting to be written to the database.
+ * Answers are kept as parallel primitive arrays to keep journal records
+ * and the write queue compact.
+ */
+public final class Submission {
+
+    private final long sequence;
+    private final int examId;
+    private final String studentId;
+    private final int score;
+    private final int totalPossible;
+    private final long submittedAt;
+    private final int[] questionIds;
+    private final int[] selectedOptions;
+
+    public Submission(long sequence, int examId, String studentId, int score, int totalPossible,
+            long submittedAt, int[] questionIds, int[] selectedOptions) {
+        this.sequence = sequence;
+        this.examId = examId;
+        this.studentId = studentId;
+        this.score = score;
+        this.totalPossible = totalPossible;
+        this.submittedAt = submittedAt;
+        this.questionIds = questionIds;
+        this.selectedOptions = selectedOptions;
+    }
+
+    public Submission withSequence(long newSequence) {
+        return new Submission(newSequence, examId, studentId, score, totalPossible,
+                submittedAt, questionIds, selectedOptions);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getExamId() {
+        return examId;
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getTotalPossible() {
+        return totalPossible;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public int[] getQuestionIds() {
+        return questionIds;
+    }
+
+    public int[] getSelectedOptions() {
+        return selectedOptions;
+    }
+}
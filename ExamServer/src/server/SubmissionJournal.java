@@ -0,0 +1,333 @@
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local journal of accepted submissions. A submission is only
+ * acknowledged to the student once its record has been forced to disk.
+ * The sequence number of the last submission committed to the database is
+ * kept in a separate checkpoint file; on startup every journal record
+ * after the checkpoint is replayed. Submissions the database rejects for
+ * good are moved to a dead-letter file in the same record layout before
+ * the checkpoint passes them.
+ *
+ * Record layout: [int length][long crc32][payload]
+ */
+public class SubmissionJournal {
+
+    private static final String JOURNAL_FILE = "submissions.journal";
+    private static final String CHECKPOINT_FILE = "submissions.checkpoint";
+    private static final String LOCK_FILE = "submissions.lock";
+    private static final String DEAD_LETTER_FILE = "submissions.deadletter";
+
+    private final File journalFile;
+    private final File checkpointFile;
+    private final File deadLetterFile;
+    private final FileChannel channel;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    private long nextSequence;
+    private long lastAppendedSequence;
+    private long committedSequence;
+
+    // Highest sequence known to be on disk; lets concurrent appenders share one force()
+    private final Object syncLock = new Object();
+    private long syncedSequence;
+
+    public SubmissionJournal(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create journal directory " + directory);
+        }
+
+        // A second writer would truncate records this one has already acknowledged
+        this.lockChannel = FileChannel.open(new File(directory, LOCK_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null; // held elsewhere in this JVM
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IOException("Submission journal in " + directory + " is already in use by another exam service");
+        }
+        this.lock = acquired;
+
+        this.journalFile = new File(directory, JOURNAL_FILE);
+        this.checkpointFile = new File(directory, CHECKPOINT_FILE);
+        this.deadLetterFile = new File(directory, DEAD_LETTER_FILE);
+        this.channel = FileChannel.open(journalFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        this.committedSequence = readCheckpoint();
+        this.lastAppendedSequence = committedSequence;
+        this.nextSequence = committedSequence + 1;
+        this.syncedSequence = committedSequence;
+    }
+
+    // Reads back every intact record not yet committed; a torn tail is cut off
+    public synchronized List<Submission> recover() throws IOException {
+        List<Submission> pending = new ArrayList<>();
+        long validLength = 0;
+        long size = channel.size();
+
+        channel.position(0);
+        ByteBuffer header = ByteBuffer.allocate(12);
+
+        while (validLength < size) {
+            header.clear();
+            if (readFully(header) < 12) {
+                break;
+            }
+            header.flip();
+            int length = header.getInt();
+            long expectedCrc = header.getLong();
+
+            if (length <= 0 || validLength + 12 + length > size) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            if (readFully(body) < length) {
+                break;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, length);
+            if (crc.getValue() != expectedCrc) {
+                break;
+            }
+
+            Submission submission = decode(body.array());
+            if (submission.getSequence() > committedSequence) {
+                pending.add(submission);
+            }
+            lastAppendedSequence = Math.max(lastAppendedSequence, submission.getSequence());
+            validLength += 12 + length;
+        }
+
+        if (validLength < size) {
+            System.err.println("Submission journal: discarding " + (size - validLength)
+                    + " bytes of incomplete record at offset " + validLength);
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+
+        nextSequence = lastAppendedSequence + 1;
+        synchronized (syncLock) {
+            syncedSequence = lastAppendedSequence;
+        }
+        return pending;
+    }
+
+    // Assigns the next sequence number and writes the record; call sync() before acknowledging
+    public synchronized Submission append(Submission submission) throws IOException {
+        Submission sequenced = submission.withSequence(nextSequence);
+        ByteBuffer record = encodeRecord(sequenced);
+
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+
+        nextSequence++;
+        lastAppendedSequence = sequenced.getSequence();
+        return sequenced;
+    }
+
+    // Group sync: the first caller forces the file and covers everyone appended before it
+    public void sync(long sequence) throws IOException {
+        // Read the target before taking syncLock; markCommitted() locks in the opposite order
+        long target;
+        synchronized (this) {
+            target = lastAppendedSequence;
+        }
+
+        synchronized (syncLock) {
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            channel.force(false);
+            syncedSequence = Math.max(syncedSequence, target);
+        }
+    }
+
+    // Records that everything up to the sequence is in the database, and compacts when fully drained
+    public synchronized void markCommitted(long sequence) throws IOException {
+        if (sequence <= committedSequence) {
+            return;
+        }
+        committedSequence = sequence;
+        writeCheckpoint(sequence);
+
+        if (committedSequence >= lastAppendedSequence) {
+            synchronized (syncLock) {
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+            }
+        }
+    }
+
+    // Forces the submission to the dead-letter file; call before markCommitted() passes its sequence
+    public synchronized void deadLetter(Submission submission) throws IOException {
+        ByteBuffer record = encodeRecord(submission);
+        try (FileChannel out = FileChannel.open(deadLetterFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                out.write(record);
+            }
+            out.force(false);
+        }
+    }
+
+    // Records in the dead-letter file, kept across restarts until an administrator clears it
+    public synchronized int countDeadLettered() throws IOException {
+        if (!deadLetterFile.exists()) {
+            return 0;
+        }
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(deadLetterFile.toPath())))) {
+            while (true) {
+                int length = in.readInt();
+                in.readLong();
+                if (length <= 0 || in.skipBytes(length) < length) {
+                    break;
+                }
+                count++;
+            }
+        } catch (EOFException e) {
+            // End of file, or a torn last record that is not counted
+        }
+        return count;
+    }
+
+    public File getDeadLetterFile() {
+        return deadLetterFile;
+    }
+
+    public synchronized long getSizeBytes() throws IOException {
+        return channel.size();
+    }
+
+    public synchronized void close() throws IOException {
+        channel.close();
+        lock.release();
+        lockChannel.close();
+    }
+
+    private int readFully(ByteBuffer buffer) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!checkpointFile.exists()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpointFile.toPath()))) {
+            return in.readLong();
+        } catch (EOFException e) {
+            return 0;
+        }
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        File temp = new File(checkpointFile.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            buffer.putLong(sequence);
+            buffer.flip();
+            out.write(buffer);
+            out.force(true);
+        }
+        Files.move(temp.toPath(), checkpointFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ByteBuffer encodeRecord(Submission submission) throws IOException {
+        byte[] body = encode(submission);
+
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        ByteBuffer record = ByteBuffer.allocate(12 + body.length);
+        record.putInt(body.length);
+        record.putLong(crc.getValue());
+        record.put(body);
+        record.flip();
+        return record;
+    }
+
+    private static byte[] encode(Submission submission) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + submission.getQuestionIds().length * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeLong(submission.getSequence());
+        out.writeInt(submission.getExamId());
+        out.writeUTF(submission.getStudentId());
+        out.writeInt(submission.getScore());
+        out.writeInt(submission.getTotalPossible());
+        out.writeLong(submission.getSubmittedAt());
+
+        int[] questionIds = submission.getQuestionIds();
+        int[] selectedOptions = submission.getSelectedOptions();
+        out.writeInt(questionIds.length);
+        for (int i = 0; i < questionIds.length; i++) {
+            out.writeInt(questionIds[i]);
+            out.writeInt(selectedOptions[i]);
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Submission decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+
+        long sequence = in.readLong();
+        int examId = in.readInt();
+        String studentId = in.readUTF();
+        int score = in.readInt();
+        int totalPossible = in.readInt();
+        long submittedAt = in.readLong();
+
+        int count = in.readInt();
+        int[] questionIds = new int[count];
+        int[] selectedOptions = new int[count];
+        for (int i = 0; i < count; i++) {
+            questionIds[i] = in.readInt();
+            selectedOptions[i] = in.readInt();
+        }
+
+        return new Submission(sequence, examId, studentId, score, totalPossible,
+                submittedAt, questionIds, selectedOptions);
+    }
+}
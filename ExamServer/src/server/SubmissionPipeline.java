@@ -0,0 +1,278 @@
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind pipeline for exam submissions. submit() returns once the
+ * submission is durable in the local journal; a single background writer
+ * then group-commits queued submissions to the database, many per
+ * transaction. Anything not yet committed is replayed from the journal
+ * when the server starts. A submission the database rejects for good is
+ * moved to the journal's dead-letter file and reported to the listener,
+ * never dropped.
+ */
+public class SubmissionPipeline {
+
+    public interface Store {
+
+        // Writes the whole batch in one transaction
+        void store(List<Submission> batch) throws SQLException;
+    }
+
+    public interface DeadLetterListener {
+
+        // Called on the writer thread once the submission is durable in the dead-letter file
+        void deadLettered(Submission submission, SQLException cause);
+    }
+
+    private static final int MAX_BATCH_SIZE = 200;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5000;
+
+    private final SubmissionJournal journal;
+    private final Store store;
+    private final DeadLetterListener deadLetterListener;
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final List<Submission> replayedSubmissions;
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+    private final AtomicLong totalAckToCommitMillis = new AtomicLong();
+
+    public SubmissionPipeline(File directory, Store store, DeadLetterListener deadLetterListener) throws IOException {
+        this.journal = new SubmissionJournal(directory);
+        this.store = store;
+        this.deadLetterListener = deadLetterListener;
+
+        // Anything accepted but not committed before the last shutdown goes first
+        List<Submission> pending = journal.recover();
+        queue.addAll(pending);
+        replayed.set(pending.size());
+        replayedSubmissions = Collections.unmodifiableList(pending);
+        deadLettered.set(journal.countDeadLettered());
+
+        this.writer = new Thread(this::runWriter, "submission-writer");
+        this.writer.setDaemon(true);
+    }
+
+    // Starts writing to the database; the owner reads the replayed submissions first
+    public void start() {
+        writer.start();
+    }
+
+    public int getReplayedCount() {
+        return (int) replayed.get();
+    }
+
+    // Submissions recovered from the journal at startup, which the database may not have yet
+    public List<Submission> getReplayedSubmissions() {
+        return replayedSubmissions;
+    }
+
+    // Returns once the submission is durable in the journal
+    public void submit(Submission submission) throws IOException {
+        if (!running) {
+            throw new IOException("Submission pipeline is shut down");
+        }
+
+        Submission sequenced;
+        synchronized (journal) {
+            // Enqueue under the same lock so the queue stays in sequence order
+            sequenced = journal.append(submission);
+            queue.add(sequenced);
+        }
+        journal.sync(sequenced.getSequence());
+        accepted.incrementAndGet();
+    }
+
+    private void runWriter() {
+        List<Submission> batch = new ArrayList<>(MAX_BATCH_SIZE);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Submission first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                commit(batch);
+                journal.markCommitted(batch.get(batch.size() - 1).getSequence());
+            } catch (InterruptedException e) {
+                // Shutdown gave up waiting; whatever is left stays in the journal for replay
+                return;
+            } catch (IOException e) {
+                System.err.println("Submission journal checkpoint failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Submission> batch) throws InterruptedException {
+        long delay = 100;
+
+        while (true) {
+            try {
+                storeTimed(batch);
+                return;
+            } catch (SQLException e) {
+                if (isPermanent(e)) {
+                    if (batch.size() == 1) {
+                        deadLetter(batch.get(0), e);
+                        return;
+                    }
+
+                    // Isolate the bad submission so the rest of the batch still lands
+                    for (Submission submission : batch) {
+                        commit(Collections.singletonList(submission));
+                    }
+                    return;
+                }
+
+                // Database unavailable: the batch is safe in the journal, so wait and retry it whole
+                System.err.println("Group commit of " + batch.size() + " submissions failed, retrying in "
+                        + delay + " ms: " + e.getMessage());
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    // Retries until the record is on disk, since the checkpoint must not pass a submission kept nowhere
+    private void deadLetter(Submission submission, SQLException cause) throws InterruptedException {
+        long delay = 100;
+
+        while (true) {
+            try {
+                journal.deadLetter(submission);
+                break;
+            } catch (IOException e) {
+                System.err.println("Could not write submission " + submission.getSequence()
+                        + " to the dead-letter file, retrying in " + delay + " ms: " + e.getMessage());
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+
+        deadLettered.incrementAndGet();
+        deadLetterListener.deadLettered(submission, cause);
+    }
+
+    private void storeTimed(List<Submission> batch) throws SQLException {
+        long start = System.nanoTime();
+        store.store(batch);
+        long elapsed = System.nanoTime() - start;
+
+        batches.incrementAndGet();
+        committed.addAndGet(batch.size());
+        totalCommitNanos.addAndGet(elapsed);
+        long currentMax;
+        do {
+            currentMax = maxCommitNanos.get();
+        } while (elapsed > currentMax && !maxCommitNanos.compareAndSet(currentMax, elapsed));
+
+        long now = System.currentTimeMillis();
+        for (Submission submission : batch) {
+            totalAckToCommitMillis.addAndGet(Math.max(0, now - submission.getSubmittedAt()));
+        }
+    }
+
+    private static boolean isPermanent(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || e instanceof SQLDataException
+                || e instanceof SQLSyntaxErrorException;
+    }
+
+    public void shutdown() {
+        running = false;
+        try {
+            // Let the writer drain the queue, then stop it even if the database is unreachable
+            writer.join(10000);
+            if (writer.isAlive()) {
+                writer.interrupt();
+                writer.join(2000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Error closing submission journal: " + e.getMessage());
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getCommittedCount() {
+        return committed.get();
+    }
+
+    // Including those rejected before this start that are still in the dead-letter file
+    public long getDeadLetteredCount() {
+        return deadLettered.get();
+    }
+
+    public File getDeadLetterFile() {
+        return journal.getDeadLetterFile();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public double getAverageBatchSize() {
+        long count = batches.get();
+        return count > 0 ? (double) committed.get() / count : 0;
+    }
+
+    public double getAverageCommitMillis() {
+        long count = batches.get();
+        return count > 0 ? totalCommitNanos.get() / 1e6 / count : 0;
+    }
+
+    public double getMaxCommitMillis() {
+        return maxCommitNanos.get() / 1e6;
+    }
+
+    public double getAverageAckToCommitMillis() {
+        long count = committed.get();
+        return count > 0 ? (double) totalAckToCommitMillis.get() / count : 0;
+    }
+
+    public long getJournalSizeBytes() {
+        try {
+            return journal.getSizeBytes();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package server;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Who has submitted which exam, as one bitset of StudentIndex indexes per
+ * exam. It is warmed from the database at startup and updated on every
+ * accepted submission, so retake and duplicate-submit checks never query.
+ * It is exact, so a miss needs no fallback to the database.
+ */
+class SubmittedSet {
+
+    private final Map<Integer, BitSet> byExam = new ConcurrentHashMap<>();
+
+    boolean contains(int examId, int studentIndex) {
+        BitSet students = byExam.get(examId);
+        if (students == null) {
+            return false;
+        }
+        synchronized (students) {
+            return students.get(studentIndex);
+        }
+    }
+
+    // Returns false if the student was already marked for this exam
+    boolean add(int examId, int studentIndex) {
+        BitSet students = byExam.computeIfAbsent(examId, id -> new BitSet());
+        synchronized (students) {
+            if (students.get(studentIndex)) {
+                return false;
+            }
+            students.set(studentIndex);
+            return true;
+        }
+    }
+
+    // Undoes add() when the submission could not be made durable
+    void remove(int examId, int studentIndex) {
+        BitSet students = byExam.get(examId);
+        if (students != null) {
+            synchronized (students) {
+                students.clear(studentIndex);
+            }
+        }
+    }
+
+    long size() {
+        long total = 0;
+        for (BitSet students : byExam.values()) {
+            synchronized (students) {
+                total += students.cardinality();
+            }
+        }
+        return total;
+    }
+}
@@ -1,8 +1,5 @@
 package server;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -22,10 +19,10 @@ public class TeacherLoginController {
     @FXML
     private Label statusLabel;
 
-    private DatabaseManager dbManager;
+    private ExamRepository repository;
 
     public void initialize() {
-        dbManager = new DatabaseManager();
+        repository = ExamRepositories.getDefault();
     }
 
     @FXML
@@ -47,8 +44,8 @@ public class TeacherLoginController {
                 ServerMainController controller = loader.getController();
                 controller.setLoggedInTeacher(username);
 
-                // Create and start the exam service
-                ExamServiceImpl examService = new ExamServiceImpl(controller);
+                // The exam service is created and exported on the first login and reused after that
+                ExamServiceImpl examService = ExamServer.startService(controller, repository);
                 controller.setExamService(examService);
 
                 // Get the current stage and set the new scene
@@ -56,9 +53,6 @@ public class TeacherLoginController {
                 stage.setTitle("Online Exam System - Server Admin");
                 stage.setScene(new Scene(root, 900, 600));
                 stage.centerOnScreen();
-
-                // Start the RMI service
-                ExamServer.startRMIService(examService);
             } else {
                 statusLabel.setText("Invalid username or password");
             }
@@ -69,25 +63,11 @@ public class TeacherLoginController {
     }
 
     private boolean authenticateTeacher(String username, String password) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            conn = dbManager.getConnection();
-            String sql = "SELECT * FROM teachers WHERE username = ? AND password = ?";
-
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, username);
-            stmt.setString(2, password); // In a real app, use password hashing
-
-            rs = stmt.executeQuery();
-            return rs.next(); // Returns true if a matching teacher is found
+            return repository.authenticate(username, password, true);
         } catch (Exception e) {
             e.printStackTrace();
             return false;
-        } finally {
-            dbManager.closeResources(conn, stmt, rs);
         }
     }
 }
@@ -1,9 +1,13 @@
 package shared;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
-public class Answer implements Serializable {
+public class Answer implements Externalizable {
     private static final long serialVersionUID = 1L;
+    private static final int WIRE_VERSION = 1;
     
     private int questionId;
     private int selectedOptionIndex;
@@ -22,4 +26,18 @@ public class Answer implements Serializable {
     
     public int getSelectedOptionIndex() { return selectedOptionIndex; }
     public void setSelectedOptionIndex(int selectedOptionIndex) { this.selectedOptionIndex = selectedOptionIndex; }
+    
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVersion(out, WIRE_VERSION);
+        WireFormat.writeInt(out, questionId);
+        WireFormat.writeInt(out, selectedOptionIndex);
+    }
+    
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readVersion(in, Answer.class, WIRE_VERSION);
+        questionId = WireFormat.readInt(in);
+        selectedOptionIndex = WireFormat.readInt(in);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package shared;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reply to a conditional fetch of the available exams. When the caller
+ * already holds the current catalog version, exams is null and only the
+ * version travels back.
+ */
+public class ExamCatalog implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int WIRE_VERSION = 1;
+    
+    private long version;
+    private List<Exam> exams;
+    
+    public ExamCatalog() {}
+    
+    public ExamCatalog(long version, List<Exam> exams) {
+        this.version = version;
+        this.exams = exams;
+    }
+    
+    public static ExamCatalog notModified(long version) {
+        return new ExamCatalog(version, null);
+    }
+    
+    public long getVersion() { return version; }
+    public List<Exam> getExams() { return exams; }
+    public boolean isModified() { return exams != null; }
+    
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVersion(out, WIRE_VERSION);
+        out.writeLong(version);
+        WireFormat.writeInt(out, exams != null ? exams.size() : -1);
+        if (exams != null) {
+            for (Exam exam : exams) {
+                exam.writeExternal(out);
+            }
+        }
+    }
+    
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readVersion(in, ExamCatalog.class, WIRE_VERSION);
+        version = in.readLong();
+        int size = WireFormat.readInt(in);
+        exams = null;
+        if (size >= 0) {
+            exams = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Exam exam = new Exam();
+                exam.readExternal(in);
+                exams.add(exam);
+            }
+        }
+    }
+}
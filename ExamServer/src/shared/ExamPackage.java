@@ -0,0 +1,80 @@
+package shared;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypted exam payload that students can download ahead of the start
+ * time. Layout: format byte, exam id, exam version, 12-byte IV, then the
+ * AES-GCM encrypted ExamPayloadCodec payload. The header is authenticated
+ * along with the content; the key is only released once the exam starts.
+ */
+public final class ExamPackage {
+
+    private static final int FORMAT = 1;
+    private static final int HEADER_LENGTH = 1 + 4 + 4;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private ExamPackage() {
+    }
+
+    public static byte[] seal(int examId, int examVersion, byte[] payload, byte[] key) throws IOException {
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.put((byte) FORMAT).putInt(examId).putInt(examVersion);
+
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(header.array());
+            byte[] sealed = cipher.doFinal(payload);
+
+            return ByteBuffer.allocate(HEADER_LENGTH + IV_LENGTH + sealed.length)
+                    .put(header.array()).put(iv).put(sealed).array();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not encrypt exam package", e);
+        }
+    }
+
+    public static int getExamId(byte[] examPackage) throws IOException {
+        return header(examPackage).getInt(1);
+    }
+
+    public static int getExamVersion(byte[] examPackage) throws IOException {
+        return header(examPackage).getInt(5);
+    }
+
+    public static Exam open(byte[] examPackage, byte[] key) throws IOException {
+        header(examPackage);
+
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"),
+                    new GCMParameterSpec(TAG_BITS, examPackage, HEADER_LENGTH, IV_LENGTH));
+            cipher.updateAAD(examPackage, 0, HEADER_LENGTH);
+            byte[] payload = cipher.doFinal(examPackage, HEADER_LENGTH + IV_LENGTH,
+                    examPackage.length - HEADER_LENGTH - IV_LENGTH);
+            return ExamPayloadCodec.decode(payload);
+        } catch (GeneralSecurityException e) {
+            // Wrong key or a corrupted download
+            throw new IOException("Could not decrypt exam package", e);
+        }
+    }
+
+    private static ByteBuffer header(byte[] examPackage) throws IOException {
+        if (examPackage.length < HEADER_LENGTH + IV_LENGTH || examPackage[0] != FORMAT) {
+            throw new IOException("Not an exam package");
+        }
+        return ByteBuffer.wrap(examPackage);
+    }
+}
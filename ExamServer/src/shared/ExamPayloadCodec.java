@@ -0,0 +1,81 @@
+package shared;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts an exam to and from the byte payload returned by
+ * RemoteExamService.getExamPayload(). The server encodes each exam version
+ * once and sends the same buffer to every student. Large exams are
+ * deflated; the first byte says which form follows, and a payload that
+ * starts with the serialization magic instead is an uncompressed one from
+ * before the flag existed.
+ */
+public final class ExamPayloadCodec {
+
+    private static final byte FORMAT_PLAIN = 0;
+    private static final byte FORMAT_DEFLATE = 1;
+    private static final byte SERIALIZATION_MAGIC = (byte) 0xAC;
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024 * 1024;
+
+    private ExamPayloadCodec() {
+    }
+
+    public static byte[] encode(Exam exam) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(exam);
+        }
+        byte[] serialized = bytes.toByteArray();
+
+        byte[] deflated = PayloadCompression.deflate(serialized, 0, serialized.length);
+        if (deflated == null) {
+            ByteBuffer payload = ByteBuffer.allocate(1 + serialized.length);
+            payload.put(FORMAT_PLAIN).put(serialized);
+            return payload.array();
+        }
+        ByteBuffer payload = ByteBuffer.allocate(1 + 4 + deflated.length);
+        payload.put(FORMAT_DEFLATE).putInt(serialized.length).put(deflated);
+        return payload.array();
+    }
+
+    public static Exam decode(byte[] payload) throws IOException {
+        if (payload.length == 0) {
+            throw new IOException("Empty exam payload");
+        }
+
+        byte[] serialized;
+        int offset;
+        switch (payload[0]) {
+            case SERIALIZATION_MAGIC:
+                serialized = payload;
+                offset = 0;
+                break;
+            case FORMAT_PLAIN:
+                serialized = payload;
+                offset = 1;
+                break;
+            case FORMAT_DEFLATE:
+                if (payload.length < 5) {
+                    throw new IOException("Truncated exam payload");
+                }
+                int originalLength = ByteBuffer.wrap(payload, 1, 4).getInt();
+                serialized = PayloadCompression.inflate(payload, 5, payload.length - 5, originalLength, MAX_PAYLOAD_BYTES);
+                offset = 0;
+                break;
+            default:
+                throw new IOException("Unknown exam payload format " + payload[0]);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(serialized, offset, serialized.length - offset))) {
+            return (Exam) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unexpected class in exam payload", e);
+        }
+    }
+}
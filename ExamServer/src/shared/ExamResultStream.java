@@ -0,0 +1,64 @@
+package shared;
+
+import java.rmi.RemoteException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks an exam's results page by page through getExamResultsPage(), so a
+ * large result set never has to travel or sit in memory all at once.
+ * Use nextPage() to fill a table incrementally, or iterate result by result.
+ */
+public class ExamResultStream implements Iterator<ExamResult> {
+    
+    private final RemoteExamService service;
+    private final int examId;
+    private final int pageSize;
+    
+    private ResultPage lastPage;
+    private Iterator<ExamResult> current = Collections.<ExamResult>emptyList().iterator();
+    
+    public ExamResultStream(RemoteExamService service, int examId, int pageSize) {
+        this.service = service;
+        this.examId = examId;
+        this.pageSize = pageSize;
+    }
+    
+    public boolean hasMorePages() {
+        return lastPage == null || lastPage.hasMore();
+    }
+    
+    // Fetches the next page; returns an empty list once the results are exhausted
+    public List<ExamResult> nextPage() throws RemoteException {
+        if (!hasMorePages()) {
+            return Collections.emptyList();
+        }
+        
+        lastPage = lastPage == null
+                ? service.getExamResultsPage(examId, 0, 0, pageSize)
+                : service.getExamResultsPage(examId, lastPage.getNextScore(), lastPage.getNextId(), pageSize);
+        return lastPage.getResults();
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext() && hasMorePages()) {
+            try {
+                current = nextPage().iterator();
+            } catch (RemoteException e) {
+                throw new IllegalStateException("Failed to fetch exam results", e);
+            }
+        }
+        return current.hasNext();
+    }
+    
+    @Override
+    public ExamResult next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+}
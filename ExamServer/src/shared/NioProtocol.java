@@ -0,0 +1,146 @@
+package shared;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Framing for the NIO transport, which carries the same RemoteExamService
+ * calls as RMI. Every frame is a 4-byte length followed by:
+ *   request:  8-byte call id, 2-byte method index, flags, serialized argument array
+ *   response: 8-byte call id, 1-byte status, flags, serialized result or exception
+ * Method indexes come from sorting the interface's method signatures, so
+ * client and server agree as long as they share the same interface.
+ * Compression is negotiated per call: a request that sets
+ * FLAG_ACCEPT_DEFLATE lets the server deflate a large response, and a
+ * deflated body is prefixed with its original length.
+ */
+public final class NioProtocol {
+
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+    public static final byte FLAG_DEFLATED = 1;
+    public static final byte FLAG_ACCEPT_DEFLATE = 2;
+    public static final int REQUEST_HEADER_LENGTH = 8 + 2 + 1;
+    public static final int RESPONSE_HEADER_LENGTH = 8 + 1 + 1;
+
+    private static final Method[] METHODS;
+    private static final Map<String, Integer> INDEXES = new HashMap<>();
+
+    static {
+        METHODS = RemoteExamService.class.getMethods();
+        Arrays.sort(METHODS, Comparator.comparing(NioProtocol::signature));
+        for (int i = 0; i < METHODS.length; i++) {
+            INDEXES.put(signature(METHODS[i]), i);
+        }
+    }
+
+    private NioProtocol() {
+    }
+
+    private static String signature(Method method) {
+        return method.getName() + Arrays.toString(method.getParameterTypes());
+    }
+
+    public static int indexOf(Method method) {
+        Integer index = INDEXES.get(signature(method));
+        if (index == null) {
+            throw new IllegalArgumentException("Not a RemoteExamService method: " + method);
+        }
+        return index;
+    }
+
+    public static Method methodAt(int index) throws IOException {
+        if (index < 0 || index >= METHODS.length) {
+            throw new IOException("Unknown method index " + index);
+        }
+        return METHODS[index];
+    }
+
+    public static ByteBuffer encodeRequest(long callId, int methodIndex, Object[] args, boolean compress)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // length, filled in below
+        out.writeLong(callId);
+        out.writeShort(methodIndex);
+        out.writeByte(compress ? FLAG_ACCEPT_DEFLATE : 0);
+        writeObject(bytes, args != null ? args : new Object[0]);
+        return frame(bytes.toByteArray(), 4 + REQUEST_HEADER_LENGTH, compress);
+    }
+
+    public static ByteBuffer encodeResponse(long callId, byte status, Object value, boolean compress)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeLong(callId);
+        out.writeByte(status);
+        out.writeByte(0);
+        writeObject(bytes, value);
+        return frame(bytes.toByteArray(), 4 + RESPONSE_HEADER_LENGTH, compress);
+    }
+
+    public static boolean acceptsDeflate(ByteBuffer request) {
+        return (request.get(REQUEST_HEADER_LENGTH - 1) & FLAG_ACCEPT_DEFLATE) != 0;
+    }
+
+    // Reads the object that follows the fixed header of a frame body
+    public static Object readBody(ByteBuffer frame, int headerLength) throws IOException {
+        byte[] body = frame.array();
+        int offset = frame.arrayOffset() + headerLength;
+        int length = frame.limit() - headerLength;
+        if ((frame.get(headerLength - 1) & FLAG_DEFLATED) != 0) {
+            if (length < 4) {
+                throw new IOException("Truncated compressed frame");
+            }
+            int originalLength = ByteBuffer.wrap(body, offset, 4).getInt();
+            body = PayloadCompression.inflate(body, offset + 4, length - 4, originalLength, MAX_FRAME_BYTES);
+            offset = 0;
+            length = body.length;
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(body, offset, length))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unexpected class in frame", e);
+        }
+    }
+
+    private static void writeObject(ByteArrayOutputStream bytes, Object value) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+    }
+
+    // Fills in the length prefix, deflating the body behind the header when allowed and worthwhile
+    private static ByteBuffer frame(byte[] bytes, int headerEnd, boolean compress) throws IOException {
+        if (compress) {
+            byte[] deflated = PayloadCompression.deflate(bytes, headerEnd, bytes.length - headerEnd);
+            if (deflated != null) {
+                ByteBuffer compressed = ByteBuffer.allocate(headerEnd + 4 + deflated.length);
+                compressed.put(bytes, 0, headerEnd).putInt(bytes.length - headerEnd).put(deflated);
+                compressed.put(headerEnd - 1, (byte) (bytes[headerEnd - 1] | FLAG_DEFLATED));
+                bytes = compressed.array();
+            }
+        }
+
+        int length = bytes.length - 4;
+        if (length > MAX_FRAME_BYTES) {
+            throw new IOException("Frame of " + length + " bytes exceeds the " + MAX_FRAME_BYTES + " byte limit");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putInt(0, length);
+        return buffer;
+    }
+}
@@ -0,0 +1,122 @@
+package shared;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate for exam payloads and NIO frames. Data under THRESHOLD_BYTES is
+ * left alone because the saving would not cover the CPU cost, and a
+ * compressed result that is not smaller than the input is discarded. The
+ * static counters let whichever side compresses report ratio and time.
+ */
+public final class PayloadCompression {
+
+    public static final int THRESHOLD_BYTES = Integer.getInteger("exam.compressThreshold", 1024);
+
+    private static final AtomicLong compressedCount = new AtomicLong();
+    private static final AtomicLong skippedCount = new AtomicLong();
+    private static final AtomicLong bytesBefore = new AtomicLong();
+    private static final AtomicLong bytesAfter = new AtomicLong();
+    private static final AtomicLong deflateNanos = new AtomicLong();
+    private static final AtomicLong inflateNanos = new AtomicLong();
+    private static final AtomicLong inflatedCount = new AtomicLong();
+
+    private PayloadCompression() {
+    }
+
+    // Returns the deflated bytes, or null if the data is too small or does not compress
+    public static byte[] deflate(byte[] data, int offset, int length) {
+        if (length < THRESHOLD_BYTES) {
+            skippedCount.incrementAndGet();
+            return null;
+        }
+
+        long start = System.nanoTime();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+                if (out.size() >= length) {
+                    skippedCount.incrementAndGet();
+                    return null;
+                }
+            }
+            compressedCount.incrementAndGet();
+            bytesBefore.addAndGet(length);
+            bytesAfter.addAndGet(out.size());
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+            deflateNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    // Inflates exactly originalLength bytes, refusing anything that claims to be larger than maxLength
+    public static byte[] inflate(byte[] data, int offset, int length, int originalLength, int maxLength)
+            throws IOException {
+        if (originalLength < 0 || originalLength > maxLength) {
+            throw new IOException("Compressed data claims " + originalLength + " bytes, limit is " + maxLength);
+        }
+
+        long start = System.nanoTime();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+            byte[] result = new byte[originalLength];
+            int filled = 0;
+            while (filled < originalLength) {
+                int n = inflater.inflate(result, filled, originalLength - filled);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                filled += n;
+            }
+            if (filled != originalLength || !inflater.finished()) {
+                throw new IOException("Compressed data does not match its declared length");
+            }
+            inflatedCount.incrementAndGet();
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed data", e);
+        } finally {
+            inflater.end();
+            inflateNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    public static long getCompressedCount() {
+        return compressedCount.get();
+    }
+
+    public static long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    public static long getBytesBefore() {
+        return bytesBefore.get();
+    }
+
+    public static long getBytesAfter() {
+        return bytesAfter.get();
+    }
+
+    public static long getDeflateNanos() {
+        return deflateNanos.get();
+    }
+
+    public static long getInflateNanos() {
+        return inflateNanos.get();
+    }
+
+    public static long getInflatedCount() {
+        return inflatedCount.get();
+    }
+}
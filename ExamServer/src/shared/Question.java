@@ -1,11 +1,15 @@
 package shared;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.List;
 
-public class Question implements Serializable {
+public class Question implements Externalizable {
 
     private static final long serialVersionUID = 1L;
+    private static final int WIRE_VERSION = 1;
 
     private int id;
     private String text;
@@ -66,6 +70,26 @@ public class Question implements Serializable {
         this.points = points;
     }
 
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVersion(out, WIRE_VERSION);
+        WireFormat.writeInt(out, id);
+        WireFormat.writeString(out, text);
+        WireFormat.writeStrings(out, options);
+        WireFormat.writeInt(out, correctOptionIndex);
+        WireFormat.writeInt(out, points);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readVersion(in, Question.class, WIRE_VERSION);
+        id = WireFormat.readInt(in);
+        text = WireFormat.readString(in);
+        options = WireFormat.readStrings(in);
+        correctOptionIndex = WireFormat.readInt(in);
+        points = WireFormat.readInt(in);
+    }
+
     @Override
     public String toString() {
         return text;
@@ -10,8 +10,25 @@ public interface RemoteExamService extends Remote {
     
     // Student methods
     List<Exam> getAvailableExams(String studentId) throws RemoteException;
+    // Returns a "not modified" catalog when knownVersion is still current; pass -1 to always get the list
+    ExamCatalog getAvailableExams(String studentId, long knownVersion) throws RemoteException;
     Exam getExamQuestions(int examId, String studentId) throws RemoteException;
+    byte[] getExamPayload(int examId, String studentId) throws RemoteException;
+    // Encrypted exam content (see ExamPackage), downloadable during the window before the start time
+    byte[] getExamPackage(int examId, String studentId) throws RemoteException;
+    // Starts the exam like getExamPayload but returns only the package key; null if the exam was edited since
+    byte[] releaseExamKey(int examId, String studentId, int examVersion) throws RemoteException;
     boolean submitExam(int examId, String studentId, List<Answer> answers) throws RemoteException;
+    // Answers as option indexes aligned with the question order of the given exam version, -1 for unanswered
+    boolean submitExamPacked(int examId, String studentId, int examVersion, int[] selectedOptions) throws RemoteException;
+    // Checkpoints only the answers changed since the last call, as question indexes and option indexes
+    void saveProgress(int examId, String studentId, int examVersion, int[] questionIndexes, int[] selectedOptions) throws RemoteException;
+    // Checkpointed answers in question order (-1 = unanswered), or null if there is nothing to resume
+    int[] getSavedProgress(int examId, String studentId, int examVersion) throws RemoteException;
+    // Renews the session lease; false once the session has been submitted, expired or reaped
+    boolean heartbeat(int examId, String studentId) throws RemoteException;
+    // Milliseconds left until the deadline by the server's clock (0 during the grace period), or -1 with no session
+    long getTimeRemaining(int examId, String studentId) throws RemoteException;
     ExamResult getExamResult(int examId, String studentId) throws RemoteException;
     
     // Teacher methods
@@ -19,5 +36,7 @@ public interface RemoteExamService extends Remote {
     boolean updateExam(Exam exam) throws RemoteException;
     boolean deleteExam(int examId) throws RemoteException;
     List<ExamResult> getExamResults(int examId) throws RemoteException;
+    // Keyset paging: pass afterId = 0 for the first page, then the previous page's cursor
+    ResultPage getExamResultsPage(int examId, int afterScore, int afterId, int pageSize) throws RemoteException;
     boolean setResultVisibility(int examId, boolean visible) throws RemoteException;
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package shared;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+
+/**
+ * One page of an exam's results, ordered by score descending then id.
+ * Pass getNextScore() and getNextId() back to getExamResultsPage() to
+ * fetch the page that follows; keyset paging keeps every page as cheap
+ * as the first however deep the teacher scrolls.
+ */
+public class ResultPage implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int WIRE_VERSION = 1;
+    
+    private List<ExamResult> results;
+    private boolean hasMore;
+    private int nextScore;
+    private int nextId;
+    
+    public ResultPage() {}
+    
+    public ResultPage(List<ExamResult> results, boolean hasMore) {
+        this.results = results;
+        this.hasMore = hasMore;
+        if (!results.isEmpty()) {
+            ExamResult last = results.get(results.size() - 1);
+            this.nextScore = last.getScore();
+            this.nextId = last.getId();
+        }
+    }
+    
+    public List<ExamResult> getResults() { return results; }
+    public boolean hasMore() { return hasMore; }
+    public int getNextScore() { return nextScore; }
+    public int getNextId() { return nextId; }
+    
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVersion(out, WIRE_VERSION);
+        WireFormat.writeResults(out, results);
+        out.writeBoolean(hasMore);
+        WireFormat.writeInt(out, nextScore);
+        WireFormat.writeInt(out, nextId);
+    }
+    
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readVersion(in, ResultPage.class, WIRE_VERSION);
+        results = WireFormat.readResults(in);
+        hasMore = in.readBoolean();
+        nextScore = WireFormat.readInt(in);
+        nextId = WireFormat.readInt(in);
+    }
+}
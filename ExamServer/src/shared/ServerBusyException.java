@@ -0,0 +1,21 @@
+package shared;
+
+import java.rmi.RemoteException;
+
+/**
+ * Thrown instead of queueing a call when the server is already at capacity
+ * for that kind of request. Nothing was executed, so the call can safely be
+ * retried after roughly getRetryAfterMillis().
+ */
+public class ServerBusyException extends RemoteException {
+    private static final long serialVersionUID = 1L;
+    
+    private final long retryAfterMillis;
+    
+    public ServerBusyException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+    
+    public long getRetryAfterMillis() { return retryAfterMillis; }
+}
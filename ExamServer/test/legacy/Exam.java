@@ -0,0 +1,39 @@
+package legacy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * shared.Exam with default serialization; see Question.
+ */
+public class Exam implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int id;
+    private String title;
+    private String description;
+    private int durationMinutes;
+    private boolean resultsVisible;
+    private int version;
+    private Date startTime;
+    private List<Question> questions;
+
+    public Exam(shared.Exam exam) {
+        this.id = exam.getId();
+        this.title = exam.getTitle();
+        this.description = exam.getDescription();
+        this.durationMinutes = exam.getDurationMinutes();
+        this.resultsVisible = exam.isResultsVisible();
+        this.version = exam.getVersion();
+        this.startTime = exam.getStartTime();
+        this.questions = new ArrayList<>();
+        for (shared.Question question : exam.getQuestions()) {
+            questions.add(new Question(question));
+        }
+    }
+
+    public String getTitle() { return title; }
+    public List<Question> getQuestions() { return questions; }
+}
@@ -0,0 +1,31 @@
+package legacy;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * shared.ExamResult with default serialization; see Question.
+ */
+public class ExamResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int id;
+    private int examId;
+    private String studentId;
+    private String studentName;
+    private int score;
+    private int totalPossible;
+    private Date submissionTime;
+
+    public ExamResult(shared.ExamResult result) {
+        this.id = result.getId();
+        this.examId = result.getExamId();
+        this.studentId = result.getStudentId();
+        this.studentName = result.getStudentName();
+        this.score = result.getScore();
+        this.totalPossible = result.getTotalPossible();
+        this.submissionTime = result.getSubmissionTime();
+    }
+
+    public String getStudentId() { return studentId; }
+}
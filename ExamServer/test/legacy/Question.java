@@ -0,0 +1,31 @@
+package legacy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * shared.Question with default serialization, as it was sent before the
+ * wire format. The package name has the same length as "shared" so class
+ * descriptors cost the same bytes in both streams.
+ */
+public class Question implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int id;
+    private String text;
+    private List<String> options;
+    private int correctOptionIndex;
+    private int points;
+
+    public Question(shared.Question question) {
+        this.id = question.getId();
+        this.text = question.getText();
+        this.options = new ArrayList<>(question.getOptions());
+        this.correctOptionIndex = question.getCorrectOptionIndex();
+        this.points = question.getPoints();
+    }
+
+    public String getText() { return text; }
+    public List<String> getOptions() { return options; }
+}
@@ -0,0 +1,29 @@
+package legacy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * shared.ResultPage with default serialization; see Question.
+ */
+public class ResultPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<ExamResult> results;
+    private boolean hasMore;
+    private int nextScore;
+    private int nextId;
+
+    public ResultPage(shared.ResultPage page) {
+        this.results = new ArrayList<>();
+        for (shared.ExamResult result : page.getResults()) {
+            results.add(new ExamResult(result));
+        }
+        this.hasMore = page.hasMore();
+        this.nextScore = page.getNextScore();
+        this.nextId = page.getNextId();
+    }
+
+    public List<ExamResult> getResults() { return results; }
+}
@@ -0,0 +1,368 @@
+package server;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Counts the SQL statements an exam start costs, cold (first start of an
+ * exam) and warm (every later start), against the start path this server
+ * had before the joined query and the snapshot cache. No database is
+ * needed: a stub JDBC driver answers the MySQL URL from a fixed exam and
+ * counts every statement executed, and MySqlExamRepository runs against
+ * it unchanged. Run with
+ * java -cp build/classes:build/test/classes:mysql-connector-j.jar server.ExamStartQueryBenchmark
+ * and exits with status 1 if a cold start takes more than one statement or
+ * a warm start reaches the database.
+ */
+class ExamStartQueryBenchmark {
+
+    private static final int EXAM_ID = 1;
+    private static final int QUESTIONS = 40;
+    private static final int OPTIONS = 4;
+    private static final int STUDENTS = 200;
+
+    private static final AtomicLong statements = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        File dataDir = TestFiles.useTempDataDir("exam-start-queries");
+        ExamServiceImpl service = null;
+        boolean failed;
+        try {
+            installStubDriver();
+            DatabaseManager dbManager = new DatabaseManager();
+
+            // The original getExamQuestions, one start per student
+            statements.set(0);
+            for (int s = 0; s < STUDENTS; s++) {
+                baselineStart(dbManager, EXAM_ID, "baseline-" + s);
+            }
+            double baseline = (double) statements.get() / STUDENTS;
+
+            service = new ExamServiceImpl(message -> { }, new MySqlExamRepository(dbManager));
+
+            statements.set(0);
+            service.getExamQuestions(EXAM_ID, "student-0");
+            long cold = statements.get();
+
+            statements.set(0);
+            for (int s = 1; s < STUDENTS; s++) {
+                service.getExamQuestions(EXAM_ID, "student-" + s);
+            }
+            double warm = (double) statements.get() / (STUDENTS - 1);
+
+            // Reopening the exam window resumes the session and must not count as a start
+            service.getExamQuestions(EXAM_ID, "student-0");
+
+            System.out.println(String.format("Exam with %d questions x %d options, %d students", QUESTIONS, OPTIONS, STUDENTS));
+            System.out.println(String.format("  baseline:   %.2f statements per start", baseline));
+            System.out.println(String.format("  cold start: %d statements", cold));
+            System.out.println(String.format("  warm start: %.2f statements per start", warm));
+            System.out.println("  service metric: " + service.getServerMetrics().get("Exam start: queries per start")
+                    + " queries per start over " + service.getServerMetrics().get("Exam starts") + " starts");
+            failed = cold > 1 || warm > 0;
+        } finally {
+            if (service != null) {
+                service.shutdown();
+            }
+            DatabaseManager.shutdown();
+            TestFiles.deleteRecursively(dataDir);
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    // The statements the server issued per start before user-002: retake check, exam row,
+    // question rows, then one options query per question on a second connection
+    private static void baselineStart(DatabaseManager dbManager, int examId, String studentId) throws SQLException {
+        Connection conn = dbManager.getConnection();
+        try {
+            query(conn, "SELECT * FROM exam_results WHERE exam_id = ? AND student_id = ?", examId);
+            query(conn, "SELECT * FROM exams WHERE id = ?", examId);
+
+            List<Integer> questionIds = new ArrayList<>();
+            PreparedStatement stmt = conn.prepareStatement("SELECT q.* FROM questions q "
+                    + "JOIN exam_questions eq ON q.id = eq.question_id WHERE eq.exam_id = ?");
+            stmt.setInt(1, examId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                questionIds.add(rs.getInt("id"));
+            }
+            dbManager.closeResources(null, stmt, rs);
+
+            for (int questionId : questionIds) {
+                Connection optionsConn = dbManager.getConnection();
+                try {
+                    query(optionsConn, "SELECT * FROM question_options WHERE question_id = ? ORDER BY option_order", questionId);
+                } finally {
+                    dbManager.closeResources(optionsConn, null, null);
+                }
+            }
+        } finally {
+            dbManager.closeResources(conn, null, null);
+        }
+    }
+
+    private static void query(Connection conn, String sql, int param) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        stmt.setInt(1, param);
+        ResultSet rs = stmt.executeQuery();
+        while (rs.next()) {
+            // Drain like the original code did
+        }
+        rs.close();
+        stmt.close();
+    }
+
+    // Rows for the statements the start paths issue; anything else (migrations, warm-up reads) sees no rows
+    private static List<Map<String, Object>> rowsFor(String sql) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (sql.contains("LEFT JOIN question_options")) {
+            for (int q = 1; q <= QUESTIONS; q++) {
+                for (int o = 0; o < OPTIONS; o++) {
+                    Map<String, Object> row = examColumns("exam_id");
+                    row.put("question_id", q);
+                    row.put("text", "Question " + q);
+                    row.put("correct_option", 1);
+                    row.put("points", 2);
+                    row.put("option_text", "Option " + o);
+                    rows.add(row);
+                }
+            }
+        } else if (sql.startsWith("SELECT * FROM exams WHERE id")) {
+            rows.add(examColumns("id"));
+        } else if (sql.startsWith("SELECT q.* FROM questions q")) {
+            for (int q = 1; q <= QUESTIONS; q++) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", q);
+                row.put("text", "Question " + q);
+                row.put("correct_option", 1);
+                row.put("points", 2);
+                rows.add(row);
+            }
+        } else if (sql.startsWith("SELECT * FROM question_options")) {
+            for (int o = 0; o < OPTIONS; o++) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("option_text", "Option " + o);
+                row.put("option_order", o);
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> examColumns(String idColumn) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put(idColumn, EXAM_ID);
+        row.put("title", "Benchmark exam");
+        row.put("description", "Counts statements per start");
+        row.put("duration_minutes", 60);
+        row.put("results_visible", true);
+        row.put("version", 1);
+        row.put("start_time", null);
+        return row;
+    }
+
+    // Registered ahead of the real driver, which is removed so it never tries to reach a server
+    private static void installStubDriver() throws Exception {
+        Class.forName("com.mysql.cj.jdbc.Driver");
+        for (Enumeration<Driver> drivers = DriverManager.getDrivers(); drivers.hasMoreElements(); ) {
+            DriverManager.deregisterDriver(drivers.nextElement());
+        }
+        DriverManager.registerDriver(new StubDriver());
+    }
+
+    private static Object proxy(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+
+    private static class StubDriver implements Driver {
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            return acceptsURL(url) ? (Connection) proxy(Connection.class, new ConnectionHandler()) : null;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:mysql:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+
+        private boolean autoCommit = true;
+        private boolean closed = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new StatementHandler((String) args[0]));
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler(null));
+                case "isValid":
+                    return !closed;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+
+        private final String sql;
+
+        StatementHandler(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "executeQuery":
+                    statements.incrementAndGet();
+                    return proxy(ResultSet.class, new ResultSetHandler(rowsFor(sql != null ? sql : (String) args[0])));
+                case "executeUpdate":
+                case "execute":
+                case "executeLargeUpdate":
+                    statements.incrementAndGet();
+                    return defaultValue(method.getReturnType());
+                case "executeBatch":
+                    statements.incrementAndGet();
+                    return new int[0];
+                case "getGeneratedKeys":
+                    return proxy(ResultSet.class, new ResultSetHandler(Collections.<Map<String, Object>>emptyList()));
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+
+        private final List<Map<String, Object>> rows;
+        private int position = -1;
+        private boolean lastWasNull;
+
+        ResultSetHandler(List<Map<String, Object>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("next".equals(name)) {
+                return ++position < rows.size();
+            }
+            if ("wasNull".equals(name)) {
+                return lastWasNull;
+            }
+            if (name.startsWith("get") && args != null && args.length == 1 && position < rows.size()) {
+                Map<String, Object> row = rows.get(position);
+                Object value = args[0] instanceof String
+                        ? row.get(((String) args[0]).toLowerCase())
+                        : new ArrayList<>(row.values()).get((Integer) args[0] - 1);
+                lastWasNull = value == null;
+                if (value == null) {
+                    return defaultValue(method.getReturnType());
+                }
+                if (method.getReturnType() == boolean.class && value instanceof Integer) {
+                    return (Integer) value != 0;
+                }
+                if (method.getReturnType() == long.class && value instanceof Integer) {
+                    return ((Integer) value).longValue();
+                }
+                if (method.getReturnType() == String.class) {
+                    return value.toString();
+                }
+                return value;
+            }
+            switch (name) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+}
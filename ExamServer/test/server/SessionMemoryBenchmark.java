@@ -0,0 +1,213 @@
+package server;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import shared.Exam;
+import shared.Question;
+
+/**
+ * Heap cost per active session, to size what each layout saves. It
+ * compares the String-keyed ConcurrentHashMap that sessions used to live
+ * in with SessionTable plus StudentIndex, then measures a whole session as
+ * ExamServiceImpl holds it, and finally the scalar fields of a session as
+ * one object each against the same fields spread over parallel primitive
+ * arrays, which is all a struct-of-arrays layout would change. Heap is
+ * read after repeated full collections, so run with a stop-the-world
+ * collector for stable numbers:
+ * java -XX:+UseSerialGC -cp build/classes:build/test/classes server.SessionMemoryBenchmark
+ */
+class SessionMemoryBenchmark {
+
+    private static final int SESSIONS = 50000;
+    private static final int SERVICE_SESSIONS = 20000;
+    private static final int QUESTIONS = 40;
+
+    private static final Object VALUE = new Object();
+
+    // Holds whatever is being measured so it survives the collection before the reading
+    private static Object retained;
+
+    public static void main(String[] args) throws Exception {
+        String[] studentIds = new String[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            studentIds[i] = "s" + (20240000 + i);
+        }
+
+        // Each measurement runs in its own method so nothing from the previous one is still reachable
+        double mapBytes = measureMap(studentIds);
+        double tableBytes = measureTable();
+        double indexBytes = measureStudentIndex(studentIds);
+        double serviceBytes = measureService();
+        double objectBytes = measureSessionObjects();
+        double arrayBytes = measureSessionArrays();
+
+        System.out.println(String.format("Index, %d sessions:", SESSIONS));
+        System.out.println(String.format("  String-keyed ConcurrentHashMap:  %6.1f bytes per session", mapBytes));
+        System.out.println(String.format("  SessionTable:                    %6.1f bytes per session", tableBytes));
+        System.out.println(String.format("  StudentIndex:                    %6.1f bytes per student", indexBytes));
+        System.out.println(String.format("Whole session in ExamServiceImpl, %d questions, %d sessions:", QUESTIONS, SERVICE_SESSIONS));
+        System.out.println(String.format("  everything a start allocates:    %6.1f bytes per session", serviceBytes));
+        System.out.println("Scalar session fields:");
+        System.out.println(String.format("  one object per session:          %6.1f bytes per session", objectBytes));
+        System.out.println(String.format("  parallel primitive arrays:       %6.1f bytes per session", arrayBytes));
+        System.out.println(String.format("  struct-of-arrays would save %.1f bytes, %.1f%% of a session",
+                objectBytes - arrayBytes, 100 * (objectBytes - arrayBytes) / serviceBytes));
+        System.exit(0);
+    }
+
+    // Student ids already exist under every layout, so only the index structures are counted
+    private static double measureMap(String[] studentIds) throws InterruptedException {
+        long before = usedHeap();
+        Map<String, Object> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            map.put(studentIds[i] + "-" + (i % 5 + 1), VALUE);
+        }
+        retained = map;
+        return release(before);
+    }
+
+    private static double measureTable() throws InterruptedException {
+        long before = usedHeap();
+        SessionTable<Object> table = new SessionTable<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            table.put(SessionTable.key(i, i % 5 + 1), VALUE);
+        }
+        retained = table;
+        return release(before);
+    }
+
+    // One session per student here; a student taking several exams pays this once
+    private static double measureStudentIndex(String[] studentIds) throws InterruptedException {
+        long before = usedHeap();
+        StudentIndex index = new StudentIndex();
+        for (String studentId : studentIds) {
+            index.intern(studentId);
+        }
+        retained = index;
+        return release(before);
+    }
+
+    private static double measureSessionObjects() throws InterruptedException {
+        long before = usedHeap();
+        SessionFields[] objects = new SessionFields[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            objects[i] = new SessionFields(i);
+        }
+        retained = objects;
+        return release(before);
+    }
+
+    private static double measureSessionArrays() throws InterruptedException {
+        long before = usedHeap();
+        retained = new SessionArrays(SESSIONS);
+        return release(before);
+    }
+
+    // Bytes per session held by retained since the reading taken before it was built
+    private static double release(long before) throws InterruptedException {
+        double perSession = (double) (usedHeap() - before) / SESSIONS;
+        retained = null;
+        return perSession;
+    }
+
+    // Starts SERVICE_SESSIONS sessions of one exam, whose content is shared and loaded beforehand
+    private static double measureService() throws Exception {
+        File dataDir = TestFiles.useTempDataDir("session-memory");
+        ExamServiceImpl service = null;
+        try {
+            service = new ExamServiceImpl(message -> { }, new InMemoryExamRepository());
+            Exam exam = new Exam(0, "Memory", "Session footprint", 60, true);
+            List<Question> questions = new ArrayList<>();
+            for (int q = 0; q < QUESTIONS; q++) {
+                questions.add(new Question(0, "Question " + q, new ArrayList<>(Arrays.asList("a", "b", "c", "d")), 1, 2));
+            }
+            exam.setQuestions(questions);
+            service.createExam(exam);
+            int examId = service.getAllExams().get(0).getId();
+            service.getExamQuestions(examId, "warm-up");
+
+            String[] studentIds = new String[SERVICE_SESSIONS];
+            for (int i = 0; i < SERVICE_SESSIONS; i++) {
+                studentIds[i] = "student-" + i;
+            }
+            // The returned copies go straight to the client, so only what the service keeps is counted
+            long before = usedHeap();
+            for (String studentId : studentIds) {
+                service.getExamQuestions(examId, studentId);
+            }
+            long used = usedHeap() - before;
+            if (service.getActiveSessions().size() != SERVICE_SESSIONS + 1) {
+                throw new IllegalStateException("expected " + (SERVICE_SESSIONS + 1) + " active sessions");
+            }
+            return (double) used / SERVICE_SESSIONS;
+        } finally {
+            if (service != null) {
+                service.shutdown();
+            }
+            TestFiles.deleteRecursively(dataDir);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    // The scalar fields of ExamServiceImpl.ActiveExamSession, laid out the same way
+    private static class SessionFields {
+
+        // Stands in for the private SessionState constant the real field starts at
+        private static final Object NOT_STARTED = new Object();
+
+        private final long key;
+        private final long startTime;
+        private final long durationMillis;
+        private volatile long lastHeartbeat;
+        private volatile long leaseExpiresAt;
+        private volatile long finalizeAt;
+        private volatile int journalId = -1;
+        private final AtomicReference<Object> state = new AtomicReference<>(NOT_STARTED);
+
+        SessionFields(long key) {
+            this.key = key;
+            this.startTime = key;
+            this.durationMillis = key;
+            this.finalizeAt = key;
+        }
+    }
+
+    // The same fields as columns; the state is a byte per session
+    private static class SessionArrays {
+
+        private final long[] keys;
+        private final long[] startTimes;
+        private final long[] durations;
+        private final long[] lastHeartbeats;
+        private final long[] leaseExpiries;
+        private final long[] finalizeAts;
+        private final int[] journalIds;
+        private final byte[] states;
+
+        SessionArrays(int capacity) {
+            keys = new long[capacity];
+            startTimes = new long[capacity];
+            durations = new long[capacity];
+            lastHeartbeats = new long[capacity];
+            leaseExpiries = new long[capacity];
+            finalizeAts = new long[capacity];
+            journalIds = new int[capacity];
+            states = new byte[capacity];
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package server;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import shared.Exam;
+import shared.Question;
+
+/**
+ * Stress check for the session table and the start/submit path, run by
+ * hand (java -cp build/classes:build/test/classes server.SessionRaceCheck)
+ * since the project has no unit test suite. The first part hammers
+ * SessionTable putIfAbsent and remove while the stripes grow; the second
+ * races concurrent starts and submits for the same student against
+ * ExamServiceImpl. Each key and each student must end with exactly one
+ * winner. Exits with status 1 on any violation.
+ */
+class SessionRaceCheck {
+
+    private static final int TABLE_THREADS = 8;
+    private static final int TABLE_ROUNDS = 6;
+    private static final int TABLE_OPS_PER_THREAD = 200000;
+
+    private static final int EXAMS = 2;
+    private static final int STUDENTS = 300;
+    private static final int RACERS = 16;
+
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        checkSessionTable();
+        checkStartAndSubmit();
+
+        if (!failures.isEmpty()) {
+            for (String failure : failures) {
+                System.out.println("FAIL: " + failure);
+            }
+            System.exit(1);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    private static synchronized void fail(String message) {
+        if (failures.size() < 50) {
+            failures.add(message);
+        }
+    }
+
+    private static void checkSessionTable() throws Exception {
+        SessionTable<Object> table = new SessionTable<>();
+        ExecutorService pool = Executors.newFixedThreadPool(TABLE_THREADS);
+        long started = System.nanoTime();
+
+        // Each round widens the key space so the stripes keep growing and rebuilding under load
+        for (int round = 0; round < TABLE_ROUNDS; round++) {
+            int keyCount = 256 << (2 * round);
+            AtomicIntegerArray holders = new AtomicIntegerArray(keyCount);
+            CyclicBarrier barrier = new CyclicBarrier(TABLE_THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int t = 0; t < TABLE_THREADS; t++) {
+                final int seed = round * TABLE_THREADS + t;
+                futures.add(pool.submit(() -> {
+                    Object token = new Object();
+                    Random random = new Random(seed);
+                    List<Integer> kept = new ArrayList<>();
+                    barrier.await();
+
+                    for (int op = 0; op < TABLE_OPS_PER_THREAD; op++) {
+                        int i = random.nextInt(keyCount);
+                        long key = SessionTable.key(i, i % 3 + 1);
+                        Object previous = table.putIfAbsent(key, token);
+                        if (previous == token) {
+                            continue; // one of our kept entries
+                        }
+                        if (previous != null) {
+                            if (table.remove(key, token)) {
+                                fail("remove by a losing thread succeeded for key " + i);
+                            }
+                            continue;
+                        }
+                        if (holders.incrementAndGet(i) != 1) {
+                            fail("two putIfAbsent winners for key " + i);
+                        }
+                        if (table.get(key) != token) {
+                            fail("get did not return the winner for key " + i);
+                        }
+                        // Keep some entries so the live count, and with it the capacity, keeps rising
+                        if (random.nextInt(4) == 0) {
+                            kept.add(i);
+                            continue;
+                        }
+                        holders.decrementAndGet(i);
+                        if (!table.remove(key, token)) {
+                            fail("winner could not remove key " + i);
+                        }
+                    }
+
+                    for (int i : kept) {
+                        if (table.get(SessionTable.key(i, i % 3 + 1)) != token) {
+                            fail("kept entry lost for key " + i);
+                        }
+                        holders.decrementAndGet(i);
+                        if (!table.remove(SessionTable.key(i, i % 3 + 1), token)) {
+                            fail("kept entry could not be removed for key " + i);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            if (table.size() != 0) {
+                fail("round " + round + " left " + table.size() + " entries in the table");
+            }
+            AtomicInteger visited = new AtomicInteger();
+            table.forEach(value -> visited.incrementAndGet());
+            if (visited.get() != 0) {
+                fail("round " + round + " forEach still visits " + visited.get() + " entries");
+            }
+        }
+        pool.shutdown();
+
+        System.out.println(String.format("SessionTable: %d rounds x %d threads x %d ops in %d ms",
+                TABLE_ROUNDS, TABLE_THREADS, TABLE_OPS_PER_THREAD, (System.nanoTime() - started) / 1000000));
+    }
+
+    private static void checkStartAndSubmit() throws Exception {
+        File dataDir = TestFiles.useTempDataDir("session-race-check");
+        try {
+            raceStartAndSubmit();
+        } finally {
+            TestFiles.deleteRecursively(dataDir);
+        }
+    }
+
+    private static void raceStartAndSubmit() throws Exception {
+        CountingRepository repository = new CountingRepository();
+        ExamServiceImpl service = new ExamServiceImpl(message -> { }, repository);
+
+        for (int e = 0; e < EXAMS; e++) {
+            Exam exam = new Exam(0, "Race " + e, "Concurrent start and submit", 60, true);
+            List<Question> questions = new ArrayList<>();
+            for (int q = 0; q < 4; q++) {
+                questions.add(new Question(0, "Question " + q, new ArrayList<>(Arrays.asList("a", "b", "c")), 1, 2));
+            }
+            exam.setQuestions(questions);
+            service.createExam(exam);
+        }
+        List<Exam> exams = service.getAllExams();
+
+        ExecutorService pool = Executors.newFixedThreadPool(RACERS);
+        long started = System.nanoTime();
+
+        for (int s = 0; s < STUDENTS; s++) {
+            String studentId = "race-" + s;
+            CyclicBarrier barrier = new CyclicBarrier(RACERS);
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int r = 0; r < RACERS; r++) {
+                final Exam exam = exams.get(r % exams.size());
+                futures.add(pool.submit(() -> {
+                    barrier.await();
+                    Exam given = null;
+                    try {
+                        given = service.getExamQuestions(exam.getId(), studentId);
+                    } catch (Exception e) {
+                        // Losing a start to a submit that already finished is expected
+                    }
+                    try {
+                        int version = given != null ? given.getVersion() : exam.getVersion();
+                        service.submitExamPacked(exam.getId(), studentId, version, new int[]{1, 1, 1, 1});
+                    } catch (Exception e) {
+                        // Submits racing a finished session are rejected or ignored; only the count matters
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        pool.shutdown();
+        long elapsed = (System.nanoTime() - started) / 1000000;
+
+        int activeLeft = service.getActiveSessions().size();
+        service.shutdown();
+
+        for (Exam exam : exams) {
+            for (int s = 0; s < STUDENTS; s++) {
+                String studentId = "race-" + s;
+                int writes = repository.writesFor(exam.getId(), studentId);
+                if (writes != 1) {
+                    fail(writes + " submissions stored for " + studentId + " in exam " + exam.getId());
+                }
+            }
+        }
+        if (activeLeft != 0) {
+            fail(activeLeft + " sessions still active after every student submitted");
+        }
+
+        System.out.println(String.format("ExamServiceImpl: %d students x %d exams x %d racers in %d ms, %d submissions stored",
+                STUDENTS, exams.size(), RACERS, elapsed, repository.totalWrites()));
+    }
+
+    // Counts every submission that reaches storage, duplicates included
+    private static class CountingRepository extends InMemoryExamRepository {
+
+        private final Map<String, AtomicInteger> writes = new ConcurrentHashMap<>();
+
+        @Override
+        public void saveSubmissions(List<Submission> batch) {
+            for (Submission submission : batch) {
+                writes.computeIfAbsent(submission.getExamId() + "/" + submission.getStudentId(),
+                        k -> new AtomicInteger()).incrementAndGet();
+            }
+            super.saveSubmissions(batch);
+        }
+
+        int writesFor(int examId, String studentId) {
+            AtomicInteger count = writes.get(examId + "/" + studentId);
+            return count != null ? count.get() : 0;
+        }
+
+        int totalWrites() {
+            int total = 0;
+            for (AtomicInteger count : writes.values()) {
+                total += count.get();
+            }
+            return total;
+        }
+    }
+}
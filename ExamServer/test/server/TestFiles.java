@@ -0,0 +1,34 @@
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Scratch data directories for the checks and benchmarks in this source
+ * root, which run the service against a throwaway exam.dataDir.
+ */
+final class TestFiles {
+
+    private TestFiles() {
+    }
+
+    // Creates a fresh directory and points exam.dataDir at it; call before ExamServiceImpl is loaded
+    static File useTempDataDir(String prefix) throws IOException {
+        File dir = Files.createTempDirectory(prefix).toFile();
+        System.setProperty("exam.dataDir", dir.getAbsolutePath());
+        return dir;
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            System.err.println("Could not delete " + file);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import shared.Exam;
+import shared.Question;
+import shared.RemoteExamService;
+
+/**
+ * Server half of the RMI against NIO transport comparison; the client half
+ * is client.TransportLoadClient in the ExamClient project. Serves five
+ * 40-question exams from memory over one transport, the same
+ * admission-controlled service ExamServer exports, and prints its thread
+ * count, open descriptors and resident memory every few seconds so they
+ * can be read while the client holds its connections. Run with
+ * java -Xss256k -cp build/classes:build/test/classes server.TransportLoadServer rmi|nio [port]
+ * and stop it once the client has finished.
+ */
+class TransportLoadServer {
+
+    private static final int EXAMS = 5;
+    private static final int QUESTIONS = 40;
+    private static final long SAMPLE_MILLIS = 5000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || !(args[0].equals("rmi") || args[0].equals("nio"))) {
+            System.err.println("Usage: TransportLoadServer rmi|nio [port]");
+            System.exit(2);
+        }
+        boolean rmi = args[0].equals("rmi");
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : (rmi ? 11099 : 11100);
+
+        File dataDir = TestFiles.useTempDataDir("transport-load");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> TestFiles.deleteRecursively(dataDir)));
+
+        ExamServiceImpl service = new ExamServiceImpl(message -> { }, new InMemoryExamRepository());
+        for (int e = 0; e < EXAMS; e++) {
+            Exam exam = new Exam(0, "Exam " + e, "Description of exam " + e, 60, true);
+            List<Question> questions = new ArrayList<>();
+            for (int q = 0; q < QUESTIONS; q++) {
+                questions.add(new Question(0, "Question " + q, new ArrayList<>(Arrays.asList("a", "b", "c")), q % 3, 2));
+            }
+            exam.setQuestions(questions);
+            service.createExam(exam);
+        }
+
+        RemoteExamService exported = new AdmissionControlledExamService(service);
+        if (rmi) {
+            RemoteExamService stub = (RemoteExamService) UnicastRemoteObject.exportObject(exported, 0);
+            LocateRegistry.createRegistry(port).rebind("ExamService", stub);
+        } else {
+            new NioExamServer(exported, port).start();
+        }
+        System.out.println(args[0] + " transport listening on port " + port);
+
+        while (true) {
+            Thread.sleep(SAMPLE_MILLIS);
+            System.out.println(String.format("threads=%d fds=%s rss=%s",
+                    ManagementFactory.getThreadMXBean().getThreadCount(), openDescriptors(), residentMemory()));
+        }
+    }
+
+    // Linux only; elsewhere the thread count is all there is
+    private static String openDescriptors() {
+        String[] fds = new File("/proc/self/fd").list();
+        return fds != null ? String.valueOf(fds.length) : "-";
+    }
+
+    private static String residentMemory() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return line.substring("VmRSS:".length()).trim();
+                }
+            }
+        } catch (IOException e) {
+            // Not on Linux
+        }
+        return "-";
+    }
+}
@@ -0,0 +1,126 @@
+package shared;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Encode and decode cost of the hand-written WireFormat against default
+ * Java serialization, for the three messages that dominate traffic: an
+ * exam with its questions, a single result and a page of results. The
+ * default-serialization side uses the twins in the legacy package, which
+ * carry the same fields. Every message goes through its own object stream,
+ * as each RMI call does. Run with
+ * java -cp build/classes:build/test/classes shared.WireFormatBenchmark
+ */
+class WireFormatBenchmark {
+
+    private static final int QUESTIONS = 40;
+    private static final int RESULTS_PER_PAGE = 200;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final long ROUND_NANOS = 250000000L;
+
+    // Keeps the JIT from discarding work whose result is otherwise unused
+    private static volatile int sink;
+
+    public static void main(String[] args) throws Exception {
+        Exam exam = sampleExam();
+        ExamResult result = sampleResult(1);
+        List<ExamResult> results = new ArrayList<>();
+        for (int i = 0; i < RESULTS_PER_PAGE; i++) {
+            results.add(sampleResult(i + 1));
+        }
+        ResultPage page = new ResultPage(results, true);
+
+        System.out.println(String.format("%-34s %10s %12s %12s", "message", "bytes", "encode (us)", "decode (us)"));
+        compare("Exam, " + QUESTIONS + " questions", exam, new legacy.Exam(exam));
+        compare("ExamResult", result, new legacy.ExamResult(result));
+        compare("ResultPage, " + RESULTS_PER_PAGE + " results", page, new legacy.ResultPage(page));
+    }
+
+    private static void compare(String label, Object wire, Object serialized) throws Exception {
+        measure(label + " (WireFormat)", wire);
+        measure(label + " (default)", serialized);
+    }
+
+    private static void measure(String label, Object message) throws Exception {
+        byte[] bytes = encode(message);
+        Object decoded = decode(bytes);
+        if (decoded.getClass() != message.getClass()) {
+            throw new IllegalStateException(label + " decoded as " + decoded.getClass());
+        }
+
+        // Best of several rounds, after warm-up rounds that let the JIT settle
+        double encodeMicros = Double.MAX_VALUE;
+        double decodeMicros = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + 5; round++) {
+            double encodeRound = time(() -> encode(message));
+            double decodeRound = time(() -> decode(bytes));
+            if (round >= WARMUP_ROUNDS) {
+                encodeMicros = Math.min(encodeMicros, encodeRound);
+                decodeMicros = Math.min(decodeMicros, decodeRound);
+            }
+        }
+        System.out.println(String.format("%-34s %10d %12.2f %12.2f", label, bytes.length, encodeMicros, decodeMicros));
+    }
+
+    private interface Operation {
+
+        Object run() throws Exception;
+    }
+
+    // Microseconds per operation over a fixed time slice
+    private static double time(Operation operation) throws Exception {
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink = operation.run().hashCode();
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        return elapsed / 1000.0 / operations;
+    }
+
+    private static byte[] encode(Object message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object decode(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    // Distinct strings throughout, as real content is; repeated literals would flatter default
+    // serialization, which writes a back-reference for a string it has already sent
+    private static Exam sampleExam() {
+        Exam exam = new Exam(17, "Data Structures midterm", "Covers lists, trees, hashing and graph traversal", 90, true);
+        exam.setVersion(3);
+        exam.setStartTime(new Date(1760000000000L));
+        List<Question> questions = new ArrayList<>();
+        for (int q = 0; q < QUESTIONS; q++) {
+            questions.add(new Question(1000 + q, "Which statement about the structure in question " + q + " is true?",
+                    new ArrayList<>(Arrays.asList("Lookups take constant time (" + q + ")",
+                            "Inserts keep the order (" + q + ")", "It needs a comparator (" + q + ")",
+                            "None of the above (" + q + ")")), q % 4, 2));
+        }
+        exam.setQuestions(questions);
+        return exam;
+    }
+
+    private static ExamResult sampleResult(int id) {
+        return new ExamResult(id, 17, "s" + (20240000 + id), "Student " + id, 60 - id % 50, 80,
+                new Date(1760000000000L + id * 1000L));
+    }
+}